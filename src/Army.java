@@ -3,7 +3,10 @@ package src;
 import src.player.PlayerTeam;
 import src.sprites.entities.livingEntities.Character;
 import src.sprites.entities.livingEntities.CombatLivingEntity;
+import src.tools.save.SaveReader;
+import src.tools.save.SaveWriter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class Army {
@@ -21,4 +24,39 @@ public class Army {
     public ArrayList<CombatLivingEntity> getCombatEntities() {
         return combatEntities;
     }
+
+    /**
+     * Rough measure of how strong the army is in combat: the damage it is expected to deal times the damage it can take, summed over
+     * its stacks
+     */
+    public double getStrength() {
+        double strength = 0;
+        for (CombatLivingEntity entity : combatEntities) {
+            if (entity.isDead()) continue;
+            strength += entity.getStats().getExpectedDamage() * entity.getStats().getTotalHealth();
+        }
+        return strength;
+    }
+
+    public void save(SaveWriter out) throws IOException {
+        out.writeInt(combatEntities.size());
+        for (CombatLivingEntity entity : combatEntities) {
+            out.writeByte(entity.getCharacter().ordinal());
+            entity.getStats().save(out);
+        }
+    }
+
+    /**
+     * Replaces the CombatLivingEntities of this army with the ones in the save
+     */
+    public void load(SaveReader in) throws IOException {
+        combatEntities.clear();
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Corrupt save, army of " + count + " stacks");
+        for (int i = 0; i < count; i++) {
+            CombatLivingEntity entity = new CombatLivingEntity(in.readEnum(Character.CharacterEnum.values()), team);
+            entity.getStats().load(in);
+            combatEntities.add(entity);
+        }
+    }
 }
@@ -1,15 +1,36 @@
 package src;
 
+import src.ai.CombatAi;
+import src.ai.MapAi;
 import src.combat.CombatComponent;
 import src.combat.GameCombat;
+import src.map.DefaultMap;
 import src.map.GameMap;
+import src.map.MapFile;
+import src.map.MapSource;
+import src.player.PlayerResources;
 import src.player.PlayerTeam;
 import src.player.PlayerTeamColor;
 import src.tools.image.ImageLoader;
 import src.menu.MenuComponent;
 import src.tools.Vector2D;
+import src.tools.command.Command;
+import src.tools.command.CommandReader;
+import src.tools.command.CommandType;
+import src.tools.command.CommandWriter;
+import src.tools.input.Key;
 import src.tools.input.KeyHandler;
+import src.tools.input.KeyState;
+import src.tools.jfr.FrameEvent;
+import src.tools.metrics.Gauge;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
+import src.tools.metrics.MetricsRegistry;
+import src.tools.metrics.ProfilerOverlay;
+import src.tools.save.GameSave;
 import src.tools.time.DeltaTime;
+import src.tools.time.FrameScheduler;
+import src.sprites.DamageRegion;
 import src.sprites.Sprite;
 
 import javax.swing.*;
@@ -17,8 +38,16 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.concurrent.TimeUnit;
+import java.util.EnumMap;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
 import java.util.logging.*;
 
 /**
@@ -28,8 +57,18 @@ import java.util.logging.*;
 
 public class Game {
     private final Logger logger = Logger.getLogger("");
-    private static final double MAX_FPS = 144;
+    private static final double DEFAULT_FPS = 144;
     public static final ImageLoader imageLoader = new ImageLoader();
+    /** Source of all randomness in the simulation. Seeded per game so that recorded games can be replayed deterministically. */
+    public static final Random random = new Random();
+    public static final MetricsRegistry metrics = new MetricsRegistry();
+    private static final String COMMAND_LOG_FILE = "LastGame.replay";
+    private static final int REPLAY_REPAINT_INTERVAL = 64;
+    private static final String QUICKSAVE_FILE = "QuickSave.sav";
+    private static final boolean COMPRESS_SAVES = true;
+    /** Frames in a row without changes after which the game loop slows down to IDLE_FRAME_TIME */
+    private static final int IDLE_FRAMES_BEFORE_THROTTLE = 4;
+    private static final long IDLE_FRAME_TIME = DeltaTime.NANO_SECONDS_IN_SECOND / 30;
     private final GameMap gameMap;
     private final GameCombat gameCombat;
 
@@ -42,20 +81,59 @@ public class Game {
 
     private final ArrayList<PlayerTeam> playerTeamList = new ArrayList<>();
 
+    private final Queue<Command> pendingCommands = new ConcurrentLinkedQueue<>();
+    private final EnumMap<Key, KeyState> keyStates = new EnumMap<>(Key.class);
+    private CommandWriter commandWriter = null;
+    private CommandReader commandReader = null;
+    private volatile boolean replaying = false;
+    private PlayerTeam lastEndedTurn = null;
+    private long tick = 0;
+    private int idleFrames = 0;
+    private final DamageRegion damage = new DamageRegion();
+    private PlayerResources paintedResources = null;
+    private int paintedResourcesGeneration = 0;
+    private final MapAi mapAi = new MapAi(this::queueCommand);
+    private final CombatAi combatAi = new CombatAi(this::queueCommand);
+    private final BooleanSupplier hasPendingCommands = () -> !pendingCommands.isEmpty();
+
+    private final ProfilerOverlay profilerOverlay = new ProfilerOverlay(metrics);
+    private final Histogram frameTime = metrics.histogram(Metrics.FRAME_TIME);
+    private final Histogram frameUpdate = metrics.histogram(Metrics.FRAME_UPDATE);
+    private final Gauge lastPaint = metrics.gauge(Metrics.LAST_PAINT);
+    private final FrameScheduler frameScheduler = new FrameScheduler(DEFAULT_FPS, metrics.histogram(Metrics.FRAME_JITTER));
+    private final Gauge allocatedBytes = metrics.gauge(Metrics.GAME_LOOP_ALLOCATED_BYTES);
+    /** Measures the game loop's allocations, null if the JVM doesn't support it */
+    private final com.sun.management.ThreadMXBean allocationBean = createAllocationBean();
+
     public Game(){
+        this(null, null);
+    }
+
+    /**
+     * @param replayFile command log to replay before handing control to the player, or null to start a new recorded game. The replayed
+     *                   commands are recorded to a new log, so that the game is recorded from its start also when it is continued.
+     * @param mapFile map file to play, or null for the default map. Ignored when replaying, the recorded game's map is used.
+     */
+    public Game(String replayFile, String mapFile){
         setUpLogger();
+        mapFile = setUpCommandLog(replayFile, mapFile);
+        for (Key key : Key.values()) {
+            keyStates.put(key, KeyState.RELEASED);
+        }
 
-        // Try to load all images and audio.
+        // Try to load all images, audio and the map.
         // If the loading fails, then exit the program because there is no point in running the game without these resources.
+        GameMap loadedMap = null;
+        screenSize = Toolkit.getDefaultToolkit().getScreenSize();
         try {
             imageLoader.loadAssets();
+            MapSource mapSource = mapFile == null ? DefaultMap.create() : MapFile.open(Path.of(mapFile));
+            loadedMap = new GameMap(this, getMapScreenDimension(), playerTeamList, mapSource);
         } catch (IOException e) {
             logger.log(Level.SEVERE, e.toString(), e);
             System.exit(1);
         }
-
-        screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        gameMap = new GameMap(this, getMapScreenDimension(), playerTeamList);
+        gameMap = loadedMap;
         gameCombat = new GameCombat(this);
         gameComponent = new GameComponent(this);
         menuComponent = new MenuComponent(this);
@@ -69,40 +147,250 @@ public class Game {
      * Starts the game.
      */
     public void start() {
+        if (replaying) replay();
 
         long lastUpdate = System.nanoTime();
 
-        // Minimum number of nanoseconds for each game loop
-        final double minFrameTime = DeltaTime.NANO_SECONDS_IN_SECOND / MAX_FPS;
-
         while (true) {
             long startTime = System.nanoTime();
             long deltaTime = startTime - lastUpdate;
             lastUpdate = startTime;
 
 
-            update(new DeltaTime(deltaTime));
-            panelContainer.repaint();
+            FrameEvent frameEvent = FrameEvent.isRecording() ? new FrameEvent() : null;
+            if (frameEvent != null) frameEvent.begin();
+
+            frameTime.record(deltaTime);
+            final boolean executedCommands = executePendingCommands();
+            recordCommand(Command.frame(deltaTime));
+            final long updateTime = update(new DeltaTime(deltaTime));
+            tick++;
+            if (allocationBean != null) allocatedBytes.set(allocationBean.getCurrentThreadAllocatedBytes());
 
-            long totalTime = System.nanoTime() - startTime;
-            // To avoid using 100% of cpu core when not needed, sleep until the minimum frame time is met
-            if (totalTime < minFrameTime) {
-                try {
-                    TimeUnit.NANOSECONDS.sleep((long) minFrameTime - totalTime);
-                } catch (InterruptedException ignored) {}
+            if (repaintDamage(executedCommands)) idleFrames = 0;
+            else idleFrames++;
+
+            if (frameEvent != null) {
+                frameEvent.end();
+                frameEvent.tick = tick;
+                frameEvent.updateTime = updateTime;
+                frameEvent.paintTime = lastPaint.getValue();
+                frameEvent.commit();
             }
+
+            if (idleFrames > IDLE_FRAMES_BEFORE_THROTTLE) frameScheduler.waitIdle(IDLE_FRAME_TIME, hasPendingCommands);
+            else frameScheduler.waitForNextFrame();
         }
     }
 
     /**
      * Updates the game.
+     * @return how long the update took, in nanoseconds
      */
-    private void update(DeltaTime deltaTime) {
+    private long update(DeltaTime deltaTime) {
+        final long updateStart = System.nanoTime();
         if (gameCombat.isBattle()){
             gameCombat.update(deltaTime);
+            if (!replaying) combatAi.update(gameCombat);
         }else {
             gameMap.update(deltaTime);
+            // The computer's moves are in the command log, so it doesn't play while a replay is running
+            if (!replaying) mapAi.update(gameMap);
+        }
+        return frameUpdate.recordSince(updateStart) - updateStart;
+    }
+
+    /**
+     * Repaints what may have changed on screen since the last frame. Input can change anything, so it repaints everything, as does
+     * combat and the profiler overlay. Otherwise only the damaged part of the map is repainted.
+     * @param executedCommands whether player actions were executed this frame
+     * @return whether anything was repainted
+     */
+    private boolean repaintDamage(boolean executedCommands) {
+        damage.clear();
+        gameMap.pollDamage(damage);
+        final PlayerResources resources = getCurrentPlayer().getPlayerResources();
+        final boolean resourcesChanged = resources != paintedResources || resources.getGeneration() != paintedResourcesGeneration;
+        paintedResources = resources;
+        paintedResourcesGeneration = resources.getGeneration();
+
+        if (executedCommands || gameCombat.isBattle() || profilerOverlay.isVisible() || damage.isFull()) {
+            panelContainer.repaint();
+            return true;
         }
+        if (resourcesChanged) menuComponent.repaint();
+        if (!damage.isEmpty()) gameComponent.repaint(damage.getBounds());
+        return resourcesChanged || !damage.isEmpty();
+    }
+
+    /**
+     * Re-runs every command of the command log through the simulation as fast as possible, then logs how long it took.
+     * The screen is only repainted every REPLAY_REPAINT_INTERVAL ticks. Every command is recorded again, except the ends of turns,
+     * which the replayed game records itself when its turns end.
+     */
+    private void replay() {
+        final long replayStart = System.nanoTime();
+        try {
+            Command command;
+            while ((command = commandReader.next()) != null) {
+                if (command.getType() != CommandType.END_TURN) recordCommand(command);
+                if (command.getType() == CommandType.FRAME) {
+                    update(new DeltaTime(command.getNanoSeconds()));
+                    tick++;
+                    if (tick % REPLAY_REPAINT_INTERVAL == 0) panelContainer.repaint();
+                } else {
+                    if (commandReader.getTick() != tick) {
+                        logger.warning("Replay desync: command recorded at tick " + commandReader.getTick() + " executed at tick " + tick);
+                    }
+                    execute(command);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.toString(), e);
+        } finally {
+            closeReplayLog();
+            replaying = false;
+        }
+        final double replaySeconds = (System.nanoTime() - replayStart) / (double) DeltaTime.NANO_SECONDS_IN_SECOND;
+        logger.info(String.format("Replayed %d ticks in %.3f s (%.1f ticks/s)", tick, replaySeconds, tick / replaySeconds));
+    }
+
+    /**
+     * Schedules a player action for execution at the start of the next tick. Actions are ignored while a replay is running.
+     */
+    public void queueCommand(Command command) {
+        if (replaying) return;
+        pendingCommands.add(command);
+        frameScheduler.wake();
+    }
+
+    /**
+     * Executes, and records, all player actions that were queued since the last tick.
+     * @return whether any action was executed
+     */
+    private boolean executePendingCommands() {
+        boolean executed = false;
+        Command command;
+        while ((command = pendingCommands.poll()) != null) {
+            command = toTileClick(command);
+            recordCommand(command);
+            execute(command);
+            executed = true;
+        }
+        return executed;
+    }
+
+    /**
+     * Converts a click on a component to a click on the position of the map or the battlefield that is under the mouse now, so that
+     * the recorded click lands on the same tile when replayed on a window of another size
+     */
+    private Command toTileClick(Command command) {
+        return switch (command.getType()) {
+            case MAP_CLICK -> Command.tileClick(CommandType.MAP_TILE_CLICK, gameMap.getMapPosition(command.getPosition()),
+                                                command.getButton());
+            case COMBAT_CLICK -> Command.tileClick(CommandType.COMBAT_TILE_CLICK, gameCombat.getArenaPosition(command.getPosition()),
+                                                   command.getButton());
+            default -> command;
+        };
+    }
+
+    private void execute(Command command) {
+        switch (command.getType()) {
+            // Screen clicks are only executed as such when replaying a log older than version 5
+            case MAP_CLICK -> gameMap.onMouseClick(command.getPosition(), command.getButton());
+            case COMBAT_CLICK -> gameCombat.onMouseClick(command.getPosition(), command.getButton());
+            case MAP_TILE_CLICK -> gameMap.onMapClick(command.getPosition(), command.getButton());
+            case COMBAT_TILE_CLICK -> gameCombat.onArenaClick(command.getPosition(), command.getButton());
+            case MAP_FOCUS -> gameMap.setMapFocusCentre(command.getPosition());
+            case KEY -> {
+                keyStates.put(command.getKeyEvent().getKey(), command.getKeyEvent().getKeyState());
+                if (command.getKeyEvent().getKeyState() == KeyState.PRESSED && command.getKeyEvent().getKey() == Key.PROFILER) {
+                    profilerOverlay.toggle();
+                }
+                if (command.getKeyEvent().getKeyState() == KeyState.PRESSED && !gameCombat.isBattle()) {
+                    switch (command.getKeyEvent().getKey()) {
+                        case QUICKSAVE -> quickSave();
+                        case QUICKLOAD -> quickLoad();
+                    }
+                }
+                gameMap.onKeyEvent(command.getKeyEvent(), new EnumMap<>(keyStates));
+            }
+            case END_TURN -> {
+                if (lastEndedTurn == null || lastEndedTurn.getTeamColor() != command.getTeamColor()) {
+                    logger.warning("Replay desync: " + command.getTeamColor() + " ended its turn at tick " + tick);
+                }
+            }
+            case UNIT_ORDER -> gameMap.orderUnit(command.getPosition(), command.getTarget());
+            case COMBAT_ORDER -> gameCombat.orderEntity(command.getPosition(), command.getTarget());
+            case PASS_TURN -> {
+                if (getCurrentPlayer().getTeamColor() != command.getTeamColor()) {
+                    logger.warning("Replay desync: " + command.getTeamColor() + " passed the turn of " + getCurrentPlayer().getTeamColor());
+                    return;
+                }
+                gameMap.passTurn();
+            }
+        }
+    }
+
+    /**
+     * Called by GameMap when the current player ends their turn.
+     */
+    public void onTurnEnded(PlayerTeam team) {
+        lastEndedTurn = team;
+        recordCommand(Command.endTurn(team.getTeamColor()));
+        if (commandWriter != null) {
+            try {
+                commandWriter.flush();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, e.toString(), e);
+            }
+        }
+    }
+
+    private void recordCommand(Command command) {
+        if (commandWriter == null) return;
+        try {
+            commandWriter.write(tick, command);
+        } catch (IOException e) {
+            // A broken command log should not stop the game, stop recording instead
+            logger.log(Level.SEVERE, e.toString(), e);
+            closeCommandLog();
+        }
+    }
+
+    /**
+     * Saves the map to the quicksave file. Skipped during a replay, so that replaying doesn't overwrite the player's save.
+     */
+    private void quickSave() {
+        if (replaying) return;
+        final long saveStart = System.nanoTime();
+        try {
+            GameSave.save(gameMap, Path.of(QUICKSAVE_FILE), COMPRESS_SAVES);
+            logger.info(String.format("Saved game in %.2f ms", (System.nanoTime() - saveStart) / 1.0e6));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
+    /**
+     * Loads the map from the quicksave file. A replay that contains a quickload is only deterministic if the save is unchanged.
+     */
+    private void quickLoad() {
+        final long loadStart = System.nanoTime();
+        try {
+            GameSave.load(gameMap, Path.of(QUICKSAVE_FILE));
+            logger.info(String.format("Loaded game in %.2f ms", (System.nanoTime() - loadStart) / 1.0e6));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.toString(), e);
+        }
+    }
+
+    /**
+     * Exits the game. Ignored during a replay, so that a recorded exit doesn't cut the replay short.
+     */
+    public void quit() {
+        if (replaying) return;
+        System.exit(-1);
     }
 
     public void newCombat(Army attacker, Army defender){
@@ -142,6 +430,14 @@ public class Game {
         return gameCombat.getIterator();
     }
 
+    public FrameScheduler getFrameScheduler(){
+        return frameScheduler;
+    }
+
+    public ProfilerOverlay getProfilerOverlay(){
+        return profilerOverlay;
+    }
+
     public GameMap getGameMap(){
         return this.gameMap;
     }
@@ -150,6 +446,16 @@ public class Game {
         return gameMap.getCurrentPlayer();
     }
 
+    /**
+     * Hands the last teams of the map to the computer.
+     * @param count number of teams that the computer plays, the rest are played by people
+     */
+    public void setComputerPlayers(int count){
+        for (int i = 0; i < playerTeamList.size(); i++) {
+            playerTeamList.get(i).setComputerControlled(i >= playerTeamList.size() - count);
+        }
+    }
+
     /**
      * Creates the game window.
      */
@@ -200,17 +506,87 @@ public class Game {
     }
 
     /**
-     * Sets listeners for key presses and mouse clicks
+     * Opens the command log to replay, if any, and creates a new one that this game is recorded to. Also seeds the random generator
+     * so that the replay makes the same rolls as the recorded game.
+     * @return the map file to play
+     */
+    private String setUpCommandLog(String replayFile, String mapFile) {
+        long seed = System.nanoTime();
+        try {
+            if (replayFile != null) {
+                commandReader = new CommandReader(getReplayCopy(replayFile));
+                seed = commandReader.getSeed();
+                mapFile = commandReader.getMapFile();
+                replaying = true;
+            }
+            commandWriter = new CommandWriter(COMMAND_LOG_FILE, seed, mapFile);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, e.toString(), e);
+            if (commandWriter == null) logger.severe("The game is not recorded to " + COMMAND_LOG_FILE);
+        }
+        random.setSeed(seed);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeCommandLog));
+        return mapFile;
+    }
+
+    private com.sun.management.ThreadMXBean createAllocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        allocatedBytes.set(-1);
+        return null;
+    }
+
+    /**
+     * The game is recorded to COMMAND_LOG_FILE while it is replayed, so replaying that file reads a copy of it instead
+     * @return the file to replay
+     */
+    private static String getReplayCopy(String replayFile) throws IOException {
+        Path log = Path.of(COMMAND_LOG_FILE);
+        if (!Files.exists(log) || !Files.isSameFile(Path.of(replayFile), log)) return replayFile;
+        Path copy = Files.createTempFile("homm", ".replay");
+        copy.toFile().deleteOnExit();
+        Files.copy(log, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy.toString();
+    }
+
+    /**
+     * Closes the log that has been replayed, the game keeps being recorded
+     */
+    private synchronized void closeReplayLog() {
+        try {
+            if (commandReader != null) commandReader.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e.toString(), e);
+        }
+        commandReader = null;
+    }
+
+    private synchronized void closeCommandLog() {
+        try {
+            if (commandWriter != null) commandWriter.close();
+            if (commandReader != null) commandReader.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e.toString(), e);
+        }
+        commandWriter = null;
+        commandReader = null;
+    }
+
+    /**
+     * Sets listeners for key presses and mouse clicks. The input is queued as commands and executed by the game loop.
      */
     private void setUpIO() {
         final KeyHandler keyHandler = new KeyHandler(gameComponent);
-        keyHandler.addKeyListener(gameMap);
+        keyHandler.addKeyListener((e, keyStates) -> queueCommand(Command.key(e)));
         gameComponent.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 super.mousePressed(e);
                 Vector2D mousePos = new Vector2D(e.getX(), e.getY());
-                gameMap.onMouseClick(mousePos, e.getButton());
+                queueCommand(Command.click(CommandType.MAP_CLICK, mousePos, e.getButton()));
             }
         });
         combatComponent.addMouseListener(new MouseAdapter() {
@@ -218,7 +594,7 @@ public class Game {
             public void mousePressed(MouseEvent e) {
                 super.mousePressed(e);
                 Vector2D mousePos = new Vector2D(e.getX(), e.getY());
-                gameCombat.onMouseClick(mousePos, e.getButton());
+                queueCommand(Command.click(CommandType.COMBAT_CLICK, mousePos, e.getButton()));
             }
         });
     }
@@ -1,6 +1,10 @@
 package src;
 
 import src.sprites.Sprite;
+import src.sprites.SpriteBatch;
+import src.tools.metrics.Gauge;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,6 +15,10 @@ import java.awt.*;
 public class GameComponent extends JComponent
 {
     private final Game game;
+    private final Histogram paintTime = Game.metrics.histogram(Metrics.FRAME_PAINT);
+    private final Gauge lastPaint = Game.metrics.gauge(Metrics.LAST_PAINT);
+    private final Rectangle spriteBounds = new Rectangle();
+    private final SpriteBatch batch = new SpriteBatch();
 
     public GameComponent(Game game){
         this.game = game;
@@ -23,11 +31,18 @@ public class GameComponent extends JComponent
 
     @Override
     protected void paintComponent(Graphics g){
+        final long paintStart = System.nanoTime();
         super.paintComponent(g);
 
-        // Draw all sprites
+        // Draw all sprites, skipping the ones outside of the repainted area
+        Rectangle clip = g.getClipBounds();
+        batch.begin(g, this);
         for (Sprite sprite : game.getGameMapSpriteIterator()) {
-            sprite.draw(g, this);
+            if (clip == null || !sprite.getScreenBounds(spriteBounds) || spriteBounds.intersects(clip)) {
+                batch.draw(sprite);
+            }
         }
+        lastPaint.set(paintTime.recordSince(paintStart) - paintStart);
+        game.getProfilerOverlay().draw(g);
     }
 }
@@ -1,13 +1,60 @@
 package src;
 
+import src.map.MapFile;
+import src.map.generator.MapGenerator;
+import src.tools.time.FrameRateMode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * The entrypoint for the game. Creates a game object and calls upon it's start function to initialize the entire game.
+ * Run with "--map file" to play a map file, and with "--replay file" to replay a recorded game before continuing it.
+ * "--generate file" generates a map (of "--size" tiles square, from "--seed"), writes it to file and plays it.
+ * "--fps" sets the frame rate: a number of frames per second, "uncapped" or "vsync".
+ * "--computers" sets how many of the map's teams the computer plays, counted from the last team.
  */
 public class Main
 {
-    public static void main(String[] args) {
+    private static final int DEFAULT_GENERATED_SIZE = 256;
+    private static final int GENERATED_TEAM_COUNT = 2;
+
+    public static void main(String[] args) throws IOException {
         // Create and start the game
-        Game game = new Game();
+        String replayFile = null;
+        String mapFile = null;
+        String generateFile = null;
+        int generateSize = DEFAULT_GENERATED_SIZE;
+        long generateSeed = System.nanoTime();
+        String frameRate = null;
+        int computerPlayers = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--replay" -> replayFile = args[i + 1];
+                case "--map" -> mapFile = args[i + 1];
+                case "--generate" -> generateFile = args[i + 1];
+                case "--size" -> generateSize = Integer.parseInt(args[i + 1]);
+                case "--seed" -> generateSeed = Long.parseLong(args[i + 1]);
+                case "--fps" -> frameRate = args[i + 1];
+                case "--computers" -> computerPlayers = Integer.parseInt(args[i + 1]);
+            }
+        }
+
+        if (generateFile != null) {
+            MapGenerator generator = new MapGenerator(generateSize, generateSize, GENERATED_TEAM_COUNT, generateSeed);
+            MapFile.write(Path.of(generateFile), generator.generate());
+            mapFile = generateFile;
+        }
+
+        Game game = new Game(replayFile, mapFile);
+        if (frameRate != null) {
+            switch (frameRate) {
+                case "uncapped" -> game.getFrameScheduler().setMode(FrameRateMode.UNCAPPED);
+                case "vsync" -> game.getFrameScheduler().setMode(FrameRateMode.VSYNC);
+                default -> game.getFrameScheduler().setTargetFps(Double.parseDouble(frameRate));
+            }
+        }
+        game.setComputerPlayers(computerPlayers);
         game.start();
     }
 }
@@ -0,0 +1,200 @@
+package src.ai;
+
+import src.Game;
+import src.combat.GameCombat;
+import src.player.PlayerTeam;
+import src.sprites.entities.Entity;
+import src.sprites.entities.EntityType;
+import src.sprites.entities.livingEntities.CombatLivingEntity;
+import src.sprites.entities.livingEntities.CombatStats;
+import src.tools.Vector2D;
+import src.tools.aStar.MovementRange;
+import src.tools.command.Command;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Fights the battles of computer controlled teams. When it is the turn of a computer's stack and everything has stopped moving, every
+ * tile that the stack can reach is scored: by the expected damage of the best attack that can be made from it, minus how much damage
+ * enemies could deal to it next turn, minus how many turns it is from the nearest enemy. The tiles are scored in parallel on the common
+ * fork-join pool, and tiles that aren't scored before the latency budget runs out are not considered, so a decision never holds up the
+ * game loop for long.
+ * <p>
+ * The chosen action is issued as a command, so it is recorded and replays don't depend on how many tiles were scored.
+ */
+public class CombatAi
+{
+    private static final Histogram DECISION_TIME = Game.metrics.histogram(Metrics.AI_COMBAT_DECISION);
+    /** Wall time that one decision may take, as the game loop waits for it */
+    private static final long DECISION_BUDGET_NANOS = 5_000_000L;
+    private static final int TILES_PER_TASK = 16;
+    /** Share of the expected damage of the enemies that can attack a tile next turn that counts against standing on it */
+    private static final double EXPOSURE_WEIGHT = 0.1;
+    /** Share of the stack's own expected damage that counts against each turn it would take to reach the nearest enemy */
+    private static final double APPROACH_WEIGHT = 0.5;
+
+    private final Consumer<Command> commands;
+
+    /**
+     * @param commands receives the commands that give the stacks their orders, e.g Game::queueCommand
+     */
+    public CombatAi(Consumer<Command> commands) {
+        this.commands = commands;
+    }
+
+    /**
+     * Gives the stack whose turn it is its orders, if it belongs to a computer controlled team and nothing is moving
+     */
+    public void update(GameCombat combat) {
+        if (!combat.isBattle() || !combat.isStationary()) return;
+        final CombatLivingEntity entity = combat.getCurrentEntity();
+        if (entity == null || entity.isDead() || !entity.getPlayerTeam().isComputerControlled()) return;
+
+        final long start = System.nanoTime();
+        final Evaluation evaluation = new Evaluation(combat, entity, start + DECISION_BUDGET_NANOS);
+        final int tileCount = evaluation.range.getReachableCount();
+        if (tileCount > TILES_PER_TASK && ForkJoinPool.getCommonPoolParallelism() >= 2) {
+            ForkJoinPool.commonPool().invoke(new EvaluateTask(evaluation, 0, tileCount));
+        } else {
+            evaluation.evaluate(0, tileCount);
+        }
+        commands.accept(evaluation.getBestAction());
+        DECISION_TIME.recordSince(start);
+    }
+
+    /**
+     * What the scoring of one decision needs, copied from the battlefield so that worker threads only read primitive arrays
+     */
+    private static class Evaluation
+    {
+        private final MovementRange range;
+        private final long deadline;
+        private final double damage;
+        private final int maxMovement;
+        private final int[] enemyX;
+        private final int[] enemyY;
+        private final int[] enemyReach; // Distance from which the enemy can attack next turn, ignoring obstacles
+        private final double[] enemyDamage;
+        private final double[] enemyHealth;
+        private final double[] scores; // NaN for tiles that weren't scored in time
+        private final int[] targets; // Enemy attacked from each tile, -1 for none
+
+        private Evaluation(GameCombat combat, CombatLivingEntity entity, long deadline) {
+            this.range = combat.getMovementRange(entity);
+            this.deadline = deadline;
+            this.damage = entity.getStats().getExpectedDamage();
+            this.maxMovement = Math.max(1, entity.getStats().getMaxMovement());
+
+            final PlayerTeam team = entity.getPlayerTeam();
+            final List<CombatLivingEntity> enemies = new ArrayList<>();
+            for (Entity other : combat.getEntities()) {
+                if (other.getEntityType() != EntityType.LIVING) continue;
+                final CombatLivingEntity enemy = (CombatLivingEntity) other;
+                if (!enemy.isDead() && enemy.getPlayerTeam() != team) enemies.add(enemy);
+            }
+            enemyX = new int[enemies.size()];
+            enemyY = new int[enemies.size()];
+            enemyReach = new int[enemies.size()];
+            enemyDamage = new double[enemies.size()];
+            enemyHealth = new double[enemies.size()];
+            for (int i = 0; i < enemies.size(); i++) {
+                final CombatLivingEntity enemy = enemies.get(i);
+                final CombatStats stats = enemy.getStats();
+                enemyX[i] = enemy.getTileX();
+                enemyY[i] = enemy.getTileY();
+                enemyReach[i] = stats.getMaxMovement() + 1;
+                enemyDamage[i] = stats.getExpectedDamage();
+                enemyHealth[i] = Math.max(1, stats.getTotalHealth());
+            }
+
+            scores = new double[range.getReachableCount()];
+            targets = new int[range.getReachableCount()];
+            Arrays.fill(scores, Double.NaN);
+        }
+
+        /**
+         * Scores the reachable tiles from index from to index to, until the deadline passes
+         */
+        private void evaluate(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (System.nanoTime() > deadline) return;
+                evaluateTile(i);
+            }
+        }
+
+        private void evaluateTile(int index) {
+            final int x = range.getReachableX(index);
+            final int y = range.getReachableY(index);
+            double bestAttack = 0;
+            int target = -1;
+            double exposure = 0;
+            int nearest = Integer.MAX_VALUE;
+            for (int i = 0; i < enemyX.length; i++) {
+                final int distance = Math.max(Math.abs(enemyX[i] - x), Math.abs(enemyY[i] - y));
+                nearest = Math.min(nearest, distance);
+                if (distance <= enemyReach[i]) exposure += enemyDamage[i];
+                if (distance > 1) continue;
+
+                // The damage dealt, and the share of the enemy's damage that goes with the stacks it kills
+                final double dealt = Math.min(damage, enemyHealth[i]);
+                final double attack = dealt + dealt / enemyHealth[i] * enemyDamage[i];
+                if (attack > bestAttack) {
+                    bestAttack = attack;
+                    target = i;
+                }
+            }
+            final int turnsToEnemy = nearest == Integer.MAX_VALUE ? 0 : (Math.max(0, nearest - 1) + maxMovement - 1) / maxMovement;
+
+            scores[index] = bestAttack - EXPOSURE_WEIGHT * exposure - APPROACH_WEIGHT * damage * turnsToEnemy;
+            targets[index] = target;
+        }
+
+        /**
+         * @return the order to the best scored tile, the first one on a tie. Stays put if no tile was scored in time.
+         */
+        private Command getBestAction() {
+            int best = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (!Double.isNaN(scores[i]) && (best == -1 || scores[i] > scores[best])) best = i;
+            }
+            // The first reachable tile is the stack's own
+            final int moveIndex = best == -1 ? 0 : best;
+            final Vector2D moveTile = new Vector2D(range.getReachableX(moveIndex), range.getReachableY(moveIndex));
+            if (best == -1 || targets[best] == -1) return Command.combatOrder(moveTile, moveTile);
+            return Command.combatOrder(moveTile, new Vector2D(enemyX[targets[best]], enemyY[targets[best]]));
+        }
+    }
+
+    /**
+     * Splits the reachable tiles into chunks of at most TILES_PER_TASK tiles and scores them on the common pool
+     */
+    private static class EvaluateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final Evaluation evaluation;
+        private final int from;
+        private final int to;
+
+        private EvaluateTask(Evaluation evaluation, int from, int to) {
+            this.evaluation = evaluation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= TILES_PER_TASK) {
+                evaluation.evaluate(from, to);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(evaluation, from, middle), new EvaluateTask(evaluation, middle, to));
+        }
+    }
+}
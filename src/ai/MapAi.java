@@ -0,0 +1,323 @@
+package src.ai;
+
+import src.Game;
+import src.map.GameMap;
+import src.map.InfluenceMap;
+import src.player.PlayerTeam;
+import src.sprites.entities.CollectableMapEntity;
+import src.sprites.entities.Entity;
+import src.sprites.entities.livingEntities.MapLivingEntity;
+import src.tools.Vector2D;
+import src.tools.aStar.DistanceField;
+import src.tools.command.Command;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays the map turns of computer controlled teams. At the start of a turn the map is copied, and the targets of the team's units,
+ * collectables to pick up and weaker enemy heroes to attack, are searched for in parallel on the common fork-join pool while the game
+ * keeps running. Each unit's search is anytime and stays within its share of the turn's CPU budget: it measures the distance from
+ * the unit to the tiles around it with one distance field, which spreads out only until most of the share is used up, then goes
+ * through the targets in order of an optimistic score, looks each up in the field, and stops when no remaining target can beat the
+ * ones found or when the share is used up, answering with the best targets found so far. Targets that the field didn't reach are left
+ * out. A collectable is worth less the more enemy influence there is around it.
+ * <p>
+ * Once every search has answered each unit gets the best target that no other unit has taken. The moves are issued as commands one
+ * unit at a time, each when the previous unit has stopped, and the turn is passed when all units are done. The commands are recorded
+ * like a human player's input, so replays don't depend on how far the searches got.
+ */
+public class MapAi
+{
+    private static final Logger LOGGER = Logger.getLogger("");
+    private static final Histogram SEARCH_TIME = Game.metrics.histogram(Metrics.AI_SEARCH);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    /** CPU time that the searches of one turn may use together */
+    private static final long TURN_BUDGET_NANOS = 100_000_000L;
+    /** CPU time that the search of one unit may use at most, so that a team with few units doesn't think for long */
+    private static final long UNIT_BUDGET_NANOS = 20_000_000L;
+    /** Share of a unit's budget that measuring the distances may use, the rest is left for looking up the targets */
+    private static final double FIELD_BUDGET_SHARE = 0.75;
+    private static final int MAX_SEARCH_DISTANCE = 500;
+    /** Targets each search answers with, so that a unit has alternatives when another unit takes its best target */
+    private static final int CHOICES_PER_UNIT = 3;
+    /** Collectables hold between 1 and 3 of their resource */
+    private static final double EXPECTED_AMOUNT = 2;
+    /** Value of defeating an enemy hero, compared to the value of one gold */
+    private static final double ENEMY_HERO_VALUE = 20;
+    /** How many times stronger than an enemy hero's army a unit's army must be for the unit to attack it */
+    private static final double ATTACK_MARGIN = 1.5;
+    /** Lowers the score of a target by its distance, so that the nearer of two equally valuable targets is chosen */
+    private static final double DISTANCE_PENALTY = 0.001;
+
+    private final Consumer<Command> commands;
+    private Queue<DistanceField> fields = new ConcurrentLinkedQueue<>();
+    private Dimension fieldMapSize = null;
+    private int plannedTurn = -1;
+    private List<CompletableFuture<List<Choice>>> searches = null;
+    private List<Target> targets = null;
+    private final ArrayDeque<Command> orders = new ArrayDeque<>();
+
+    /**
+     * @param commands receives the commands that play the turns, e.g Game::queueCommand
+     */
+    public MapAi(Consumer<Command> commands) {
+        this.commands = commands;
+    }
+
+    /**
+     * Plays the current turn if it belongs to a computer controlled team. Never waits for the searches, and issues at most one
+     * command per call.
+     */
+    public void update(GameMap map) {
+        final PlayerTeam team = map.getCurrentPlayer();
+        if (!team.isComputerControlled()) return;
+
+        if (map.getTurnCount() != plannedTurn) {
+            // A new turn, or the map was loaded. Units only act once everything has stopped moving.
+            if (!map.isStationary()) return;
+            plannedTurn = map.getTurnCount();
+            orders.clear();
+            startSearches(map, team);
+            return;
+        }
+        if (searches != null) {
+            for (CompletableFuture<List<Choice>> search : searches) {
+                if (!search.isDone()) return;
+            }
+            assignTargets();
+        }
+        if (!map.isStationary()) return;
+
+        final Command order = orders.poll();
+        commands.accept(order != null ? order : Command.passTurn(team.getTeamColor()));
+    }
+
+    /**
+     * Copies what the searches need from the map, and starts one search per unit that can still move
+     */
+    private void startSearches(GameMap map, PlayerTeam team) {
+        final Dimension mapSize = map.getMapSize();
+        if (!mapSize.equals(fieldMapSize)) {
+            // Distance fields are sized to the map, so fields for another map are left for the searches still holding them
+            fields = new ConcurrentLinkedQueue<>();
+            fieldMapSize = new Dimension(mapSize);
+        }
+        final byte[] blocked = map.getBlocked();
+
+        final InfluenceMap influence = map.getInfluenceMap();
+        targets = new ArrayList<>();
+        for (Entity entity : map.getEntities()) {
+            final int x = entity.getTileX();
+            final int y = entity.getTileY();
+            switch (entity.getEntityType()) {
+                case COLLECTABLE -> {
+                    final double value = ((CollectableMapEntity) entity).getResource().getValue() * EXPECTED_AMOUNT;
+                    targets.add(new Target(x, y, value, 0, influence.getThreat(team, x, y)));
+                }
+                case LIVING -> {
+                    final MapLivingEntity hero = (MapLivingEntity) entity;
+                    if (hero.getPlayerTeam() != team) {
+                        targets.add(new Target(x, y, ENEMY_HERO_VALUE, hero.getArmy().getStrength(), 0));
+                    }
+                }
+            }
+        }
+
+        searches = new ArrayList<>();
+        final List<MapLivingEntity> units = team.getMapLivingEntities();
+        final long budgetNanos = Math.min(UNIT_BUDGET_NANOS, TURN_BUDGET_NANOS / Math.max(1, units.size()));
+        for (MapLivingEntity unit : units) {
+            if (unit.getMovement() <= 0) continue;
+            final UnitSearch search = new UnitSearch(unit, targets, mapSize, blocked, fields, budgetNanos);
+            searches.add(CompletableFuture.supplyAsync(search, ForkJoinPool.commonPool()));
+        }
+    }
+
+    /**
+     * Gives every unit the best of its targets that no unit with a better score has taken, and queues the orders
+     */
+    private void assignTargets() {
+        final List<Choice> choices = new ArrayList<>();
+        for (CompletableFuture<List<Choice>> search : searches) {
+            try {
+                choices.addAll(search.join());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+        searches = null;
+        choices.sort(Comparator.comparingDouble((Choice choice) -> choice.score).reversed());
+
+        final List<Vector2D> orderedUnits = new ArrayList<>();
+        final boolean[] taken = new boolean[targets.size()];
+        for (Choice choice : choices) {
+            if (taken[choice.target] || orderedUnits.contains(choice.unitTile)) continue;
+            taken[choice.target] = true;
+            orderedUnits.add(choice.unitTile);
+            final Target target = targets.get(choice.target);
+            orders.add(Command.unitOrder(choice.unitTile, new Vector2D(target.x, target.y)));
+        }
+        targets = null;
+    }
+
+    /**
+     * @return how good a target is, its value lowered by the number of turns it takes to reach it
+     */
+    private static double getScore(double value, int moves, int movement, int maxMovement) {
+        final int turns = moves <= movement ? 0 : 1 + (moves - movement - 1) / Math.max(1, maxMovement);
+        return value / (1 + turns) - moves * DISTANCE_PENALTY;
+    }
+
+    /**
+     * @return CPU time of the calling thread, or wall time if the JVM can't measure it
+     */
+    private static long getThreadTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Something on the map that a unit can move to
+     */
+    private static class Target
+    {
+        private final int x;
+        private final int y;
+        private final double value;
+        private final double strength; // Strength of the army that has to be defeated to get the value, 0 if none
+        private final double threat; // Influence of enemy units around the target
+
+        private Target(int x, int y, double value, double strength, double threat) {
+            this.x = x;
+            this.y = y;
+            this.value = value;
+            this.strength = strength;
+            this.threat = threat;
+        }
+    }
+
+    /**
+     * A target that a unit can reach, with its score
+     */
+    private static class Choice
+    {
+        private final Vector2D unitTile;
+        private final int target;
+        private final double score;
+
+        private Choice(Vector2D unitTile, int target, double score) {
+            this.unitTile = unitTile;
+            this.target = target;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Search for the best targets of one unit, run on a worker thread. Everything it reads is copied from the map before it starts.
+     */
+    private static class UnitSearch implements Supplier<List<Choice>>
+    {
+        private final Vector2D unitTile;
+        private final int movement;
+        private final int maxMovement;
+        private final double strength;
+        private final List<Target> targets;
+        private final Dimension mapSize;
+        private final byte[] blocked;
+        private final Queue<DistanceField> fields;
+        private final long budgetNanos;
+
+        private UnitSearch(MapLivingEntity unit, List<Target> targets, Dimension mapSize, byte[] blocked, Queue<DistanceField> fields,
+                           long budgetNanos) {
+            this.unitTile = new Vector2D(unit.getTileX(), unit.getTileY());
+            this.movement = unit.getMovement();
+            this.maxMovement = unit.getMaxMovement();
+            this.strength = unit.getArmy().getStrength();
+            this.targets = targets;
+            this.mapSize = mapSize;
+            this.blocked = blocked;
+            this.fields = fields;
+            this.budgetNanos = budgetNanos;
+        }
+
+        @Override public List<Choice> get() {
+            final long start = getThreadTime();
+            final int x = (int) unitTile.getX();
+            final int y = (int) unitTile.getY();
+
+            // Targets in order of the best score they could have, as no path is shorter than the distance to the target's neighbour
+            final List<Choice> candidates = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                final Target target = targets.get(i);
+                if (target.strength * ATTACK_MARGIN > strength) continue;
+                final int distance = Math.max(Math.abs(target.x - x), Math.abs(target.y - y));
+                candidates.add(new Choice(unitTile, i, getScore(getValue(target), Math.max(0, distance - 1), movement, maxMovement)));
+            }
+            candidates.sort(Comparator.comparingDouble((Choice choice) -> choice.score).reversed());
+
+            DistanceField field = fields.poll();
+            if (field == null) field = new DistanceField(mapSize.width, mapSize.height);
+            final long fieldDeadline = start + (long) (budgetNanos * FIELD_BUDGET_SHARE);
+            field.compute(blocked, new int[] {y * mapSize.width + x}, 1, MAX_SEARCH_DISTANCE, () -> getThreadTime() > fieldDeadline);
+
+            final List<Choice> choices = new ArrayList<>();
+            for (Choice candidate : candidates) {
+                if (choices.size() == CHOICES_PER_UNIT && candidate.score <= choices.get(CHOICES_PER_UNIT - 1).score) break;
+                if (getThreadTime() - start > budgetNanos) break;
+
+                final Target target = targets.get(candidate.target);
+                final int moves = getMoves(field, target);
+                if (moves == DistanceField.UNREACHABLE) continue;
+                final double score = getScore(getValue(target), moves, movement, maxMovement);
+                int index = 0;
+                while (index < choices.size() && choices.get(index).score >= score) index++;
+                if (index < CHOICES_PER_UNIT) {
+                    choices.add(index, new Choice(unitTile, candidate.target, score));
+                    if (choices.size() > CHOICES_PER_UNIT) choices.remove(CHOICES_PER_UNIT);
+                }
+            }
+
+            fields.add(field);
+            SEARCH_TIME.record(getThreadTime() - start);
+            return choices;
+        }
+
+        /**
+         * @return the moves to the target, or to the nearest of the eight tiles around it if the target itself is blocked, or
+         * UNREACHABLE
+         */
+        private static int getMoves(DistanceField field, Target target) {
+            int moves = field.getDistance(target.x, target.y);
+            if (moves != DistanceField.UNREACHABLE) return moves;
+            for (int x = target.x - 1; x <= target.x + 1; x++) {
+                for (int y = target.y - 1; y <= target.y + 1; y++) {
+                    moves = Math.min(moves, field.getDistance(x, y));
+                }
+            }
+            return moves;
+        }
+
+        /**
+         * @return the value of a target to this unit, lowered by the share of the enemy influence around it in all influence
+         */
+        private double getValue(Target target) {
+            if (target.threat <= 0) return target.value;
+            return target.value * strength / (strength + target.threat);
+        }
+    }
+}
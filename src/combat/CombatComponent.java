@@ -2,12 +2,19 @@ package src.combat;
 
 import src.Game;
 import src.sprites.Sprite;
+import src.sprites.SpriteBatch;
+import src.tools.metrics.Gauge;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
 
 import javax.swing.*;
 import java.awt.*;
 
 public class CombatComponent extends JComponent {
     private final Game game;
+    private final Histogram paintTime = Game.metrics.histogram(Metrics.FRAME_PAINT);
+    private final Gauge lastPaint = Game.metrics.gauge(Metrics.LAST_PAINT);
+    private final SpriteBatch batch = new SpriteBatch();
 
     public CombatComponent(Game game){
         this.game = game;
@@ -20,11 +27,15 @@ public class CombatComponent extends JComponent {
 
     @Override
     protected void paintComponent(Graphics g){
+        final long paintStart = System.nanoTime();
         super.paintComponent(g);
 
         // Draw all sprites
+        batch.begin(g, this);
         for (Sprite sprite : game.getCombatSpriteIterator()) {
-            sprite.draw(g, this);
+            batch.draw(sprite);
         }
+        lastPaint.set(paintTime.recordSince(paintStart) - paintStart);
+        game.getProfilerOverlay().draw(g);
     }
 }
@@ -1,12 +1,14 @@
 package src.combat;
 
 import src.sprites.entities.livingEntities.CombatLivingEntity;
+import src.tools.jfr.CombatTurnEvent;
 
 import java.util.ArrayList;
 
 public class CombatTurn {
     private final ArrayList<CombatLivingEntity> entities;
     private int entityIndex;
+    private CombatTurnEvent turnEvent = null;
 
     /**
      * Keeps track of which CombatLivingEntity's turn it currently is on the battlefield
@@ -17,6 +19,7 @@ public class CombatTurn {
         this.entities.sort(new InitiativeComparator());
         entityIndex = 0;
         entities.get(entityIndex).setEntityTurn(true);
+        beginTurnEvent();
     }
 
     public CombatLivingEntity getCurrentEntityTurn(){
@@ -27,11 +30,32 @@ public class CombatTurn {
      * Ends the current CombatLivingEntity's turn
      */
     public void endEntityTurn(){
+        if (turnEvent != null) turnEvent.commit();
         entities.get(entityIndex).setEntityTurn(false);
         do {
         entityIndex++;
         if (entityIndex >= entities.size()) entityIndex = 0;
         }while(entities.get(entityIndex).isDead());
         entities.get(entityIndex).setEntityTurn(true);
+        beginTurnEvent();
+    }
+
+    /**
+     * Ends the turn of the CombatLivingEntity whose turn it is when the battle ends, so that its turn is recorded too
+     */
+    public void endBattle(){
+        if (turnEvent != null) turnEvent.commit();
+        turnEvent = null;
+        entities.get(entityIndex).setEntityTurn(false);
+    }
+
+    private void beginTurnEvent(){
+        turnEvent = null;
+        if (!CombatTurnEvent.isRecording()) return;
+        CombatLivingEntity entity = entities.get(entityIndex);
+        turnEvent = new CombatTurnEvent();
+        turnEvent.character = entity.getCharacter().name();
+        turnEvent.stackSize = entity.getStats().getStackSize();
+        turnEvent.begin();
     }
 }
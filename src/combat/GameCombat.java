@@ -8,12 +8,17 @@ import src.sprites.entities.livingEntities.CombatLivingEntity;
 import src.sprites.Sprite;
 import src.sprites.SpriteHandler;
 import src.sprites.SpriteLayer;
+import src.sprites.StaticLayer;
 import src.tools.Vector2D;
 import src.tools.WindowFocus;
 import src.tools.aStar.AStarPathFinder;
+import src.tools.aStar.MovementRange;
+import src.tools.aStar.Path;
 import src.tools.aStar.PathFinder;
 import src.tools.aStar.PathMap;
 import src.tools.aStar.heuristics.ClosestSquaredHeuristic;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
 import src.tools.time.DeltaTime;
 
 import java.awt.*;
@@ -21,9 +26,11 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Logger;
 
 public class GameCombat {
     public static final Dimension ARENA_SIZE = new Dimension(18, 10);
+    private static final Logger LOGGER = Logger.getLogger("");
     private final Game game;
     private Army attacker, defender;
     private final SpriteHandler combatSpriteHandler;
@@ -35,11 +42,12 @@ public class GameCombat {
     private final List<Vector2D> startingPositions;
     private CombatTurn combatTurn;
     private boolean entitiesStationary = true;
+    private final Histogram updateTime = Game.metrics.histogram(Metrics.COMBAT_UPDATE);
 
     public GameCombat(Game game){
         this.game = game;
         this.combatSpriteHandler = new SpriteHandler();
-        this.combatEntityHandler = new EntityHandler();
+        this.combatEntityHandler = new EntityHandler(combatSpriteHandler.getRenderQueue(), SpriteLayer.ENTITIES);
         finder = new AStarPathFinder(new PathMap(ARENA_SIZE, null), 50, true);
         factory = new CombatSpriteFactory(game.getCombatScreenDimension());
 
@@ -49,7 +57,8 @@ public class GameCombat {
         Dimension screenSize = game.getCombatScreenDimension();
         this.focus = new WindowFocus(focusPos, screenSize, ARENA_SIZE, gridSquareLength);
 
-        combatSpriteHandler.setBackground(factory.getCombatBackground());
+        BufferedImage background = factory.getCombatBackground();
+        combatSpriteHandler.setBackground(new StaticLayer(size -> List.of(new SpriteTexture(new Vector2D(), 0, background))));
 
         startingPositions = Arrays.asList(new Vector2D(),
                 new Vector2D(0, 1), new Vector2D(0, 2), new Vector2D(0, 3),
@@ -57,12 +66,11 @@ public class GameCombat {
     }
 
     public Iterable<Sprite> getIterator(){
-        ArrayList<Sprite> iterable = combatSpriteHandler.getLayerIterator(SpriteLayer.FIRST);
-        iterable.addAll(combatEntityHandler.getIterator());
-        return iterable;
+        return combatSpriteHandler.getIterator();
     }
 
     public void update(DeltaTime deltaTime) {
+        final long updateStart = System.nanoTime();
         for (Entity entity : combatEntityHandler.getIterator()) {
             entity.update(deltaTime, focus);
         }
@@ -73,6 +81,8 @@ public class GameCombat {
 
         combatSpriteHandler.update(deltaTime);
         combatEntityHandler.update(deltaTime, focus);
+        combatSpriteHandler.sort();
+        updateTime.recordSince(updateStart);
     }
 
     private void updateAllowedMovementShade(){
@@ -115,10 +125,12 @@ public class GameCombat {
             entity.setPosition(defenderStart);
             i++;
         }
+        if (combatTurn != null) combatTurn.endBattle();
         combatTurn = new CombatTurn(entityList);
     }
 
     public void cleanUpBattlefield(){
+        if (combatTurn != null) combatTurn.endBattle();
         attacker = null;
         defender = null;
         game.finishCombat();
@@ -129,8 +141,23 @@ public class GameCombat {
     }
 
     public void onMouseClick(Vector2D mousePos, int mouseButton) {
-        Vector2D mouseMapFocus = new Vector2D(mousePos.getX() / focus.getTileSize(), mousePos.getY() / focus.getTileSize());
-        Vector2D mouseAbsolutePos = relativeToAbsolutePos(mouseMapFocus);
+        onArenaClick(getArenaPosition(mousePos), mouseButton);
+    }
+
+    /**
+     * Converts a position on the component, which depends on the size of the screen, to a position on the battlefield
+     * @return the position on the battlefield, measured in tiles
+     */
+    public Vector2D getArenaPosition(Vector2D mousePos) {
+        return relativeToAbsolutePos(new Vector2D(mousePos.getX() / focus.getTileSize(), mousePos.getY() / focus.getTileSize()));
+    }
+
+    /**
+     * When a position of the battlefield is clicked on by mouse
+     * @param mouseAbsolutePos position on the battlefield, measured in tiles
+     * @param mouseButton button that was pressed
+     */
+    public void onArenaClick(Vector2D mouseAbsolutePos, int mouseButton) {
         if (mouseButton == 3 && entitiesStationary){ //if any entity is moving, don't register right clicks
             PathMap map = new PathMap(ARENA_SIZE, getBlocked());
             if(combatTurn.getCurrentEntityTurn().onMouseClick3(map, finder, mouseAbsolutePos)) {
@@ -140,16 +167,59 @@ public class GameCombat {
         }
     }
 
-    private int[][] getBlocked() {
-        int[][] blocked = new int[ARENA_SIZE.width][ARENA_SIZE.height];
+    /**
+     * Moves the stack whose turn it is to a tile within its movement, and has it attack the enemy at another tile, as if the player
+     * had right clicked the enemy. The stack's turn ends even if the tile can't be reached, so that a bad order can't stall the battle.
+     * @param moveTile tile that the stack moves to
+     * @param targetTile tile of the enemy to attack, or moveTile to only move
+     */
+    public void orderEntity(Vector2D moveTile, Vector2D targetTile) {
+        if (!entitiesStationary) return;
+        CombatLivingEntity entity = combatTurn.getCurrentEntityTurn();
+        Path path = getMovementRange(entity).getPath((int) moveTile.getX(), (int) moveTile.getY());
+        if (path == null) {
+            LOGGER.warning(entity.getCharacter() + " can't reach " + moveTile);
+        } else {
+            entity.moveAndInteract(path, targetTile);
+        }
+        combatTurn.endEntityTurn();
+    }
+
+    /**
+     * @return the tiles that an entity can move to this turn
+     */
+    public MovementRange getMovementRange(CombatLivingEntity entity) {
+        return new MovementRange(new PathMap(ARENA_SIZE, getBlocked()), entity, entity.getTileX(), entity.getTileY(),
+                entity.getMovement());
+    }
+
+    /**
+     * @return the entity whose turn it is, or null if there is no battle
+     */
+    public CombatLivingEntity getCurrentEntity() {
+        return combatTurn == null ? null : combatTurn.getCurrentEntityTurn();
+    }
+
+    public ArrayList<Entity> getEntities() {
+        return combatEntityHandler.getIterator();
+    }
+
+    /**
+     * @return true if no entity on the battlefield is moving or acting, i.e the current entity can be given its orders
+     */
+    public boolean isStationary() {
+        return entitiesStationary;
+    }
+
+    private byte[] getBlocked() {
+        byte[] blocked = new byte[ARENA_SIZE.width * ARENA_SIZE.height];
 
         for (Entity mapEntity : combatEntityHandler.getIterator()) {
-            Vector2D entityPos = mapEntity.getPosition();
-            for (int x = 0; x < mapEntity.getSize().getX(); x++) {
-                for (int y = 0; y < mapEntity.getSize().getY(); y++) {
-                    int iterX = (int)(entityPos.getX() + x);
-                    int iterY = (int)(entityPos.getY() + y);
-                    blocked[iterX][iterY] = 1;
+            int entityX = mapEntity.getTileX();
+            int entityY = mapEntity.getTileY();
+            for (int x = 0; x < mapEntity.getTileWidth(); x++) {
+                for (int y = 0; y < mapEntity.getTileHeight(); y++) {
+                    blocked[(entityY + y) * ARENA_SIZE.width + entityX + x] = 1;
                 }
             }
         }
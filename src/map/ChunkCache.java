@@ -0,0 +1,164 @@
+package src.map;
+
+import src.tools.WindowFocus;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the chunks of the map that are around the map focus loaded and rendered. Chunks that come within PREFETCH_MARGIN chunks of
+ * the visible area are loaded from the MapSource and rendered, and chunks further away than EVICT_MARGIN are dropped again.
+ * Chunks are read by the game loop and drawn by the event dispatch thread, so both maps are concurrent.
+ */
+public class ChunkCache {
+    private static final Logger LOGGER = Logger.getLogger("");
+    private static final int PREFETCH_MARGIN = 1;
+    private static final int EVICT_MARGIN = 3;
+    private final MapSpriteFactory factory;
+    private final Map<Long, MapChunk> chunks = new ConcurrentHashMap<>();
+    private final Map<Long, BufferedImage> chunkImages = new ConcurrentHashMap<>();
+    private volatile MapSource source;
+
+    public ChunkCache(MapSource source, MapSpriteFactory factory) {
+        this.source = source;
+        this.factory = factory;
+    }
+
+    public MapSource getSource() {
+        return source;
+    }
+
+    /**
+     * Replaces the source of the map's terrain and drops everything that was loaded from the old one. The old source is closed.
+     */
+    public void setSource(MapSource source) {
+        MapSource oldSource = this.source;
+        this.source = source;
+        chunks.clear();
+        chunkImages.clear();
+        if (oldSource instanceof Closeable) {
+            try {
+                ((Closeable) oldSource).close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the type of a tile, loading its chunk if needed
+     * @return the tile's type, or null if its chunk couldn't be loaded
+     */
+    public MapTileType getTile(int x, int y) {
+        MapChunk chunk = getChunk(x / MapChunk.CHUNK_SIZE, y / MapChunk.CHUNK_SIZE);
+        if (chunk == null) return null;
+        return chunk.getTile(x % MapChunk.CHUNK_SIZE, y % MapChunk.CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the type of a tile without loading anything
+     * @return the tile's type, or null if its chunk isn't loaded
+     */
+    public MapTileType getResidentTile(int x, int y) {
+        MapChunk chunk = chunks.get(MapChunk.key(x / MapChunk.CHUNK_SIZE, y / MapChunk.CHUNK_SIZE));
+        if (chunk == null) return null;
+        return chunk.getTile(x % MapChunk.CHUNK_SIZE, y % MapChunk.CHUNK_SIZE);
+    }
+
+    /**
+     * Returns a chunk, loading it if needed
+     * @return the chunk, or null if it couldn't be loaded
+     */
+    public MapChunk getChunk(int chunkX, int chunkY) {
+        long key = MapChunk.key(chunkX, chunkY);
+        MapChunk chunk = chunks.get(key);
+        if (chunk != null) return chunk;
+        try {
+            chunk = source.loadChunk(chunkX, chunkY);
+            chunks.put(key, chunk);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+        }
+        return chunk;
+    }
+
+    /**
+     * Loads and renders the chunks around the visible part of the map, and evicts the ones that are far away
+     * @param focus the map focus
+     * @param screenSize size of the screen the map is drawn on, measured in pixels
+     * @return whether a visible chunk was rendered, i.e whether the drawn background changed
+     */
+    public boolean update(WindowFocus focus, Dimension screenSize) {
+        Rectangle visible = getVisibleChunks(focus, screenSize);
+        boolean visibleChanged = false;
+
+        Rectangle prefetch = clampToMap(grow(visible, PREFETCH_MARGIN));
+        for (int chunkY = prefetch.y; chunkY < prefetch.y + prefetch.height; chunkY++) {
+            for (int chunkX = prefetch.x; chunkX < prefetch.x + prefetch.width; chunkX++) {
+                long key = MapChunk.key(chunkX, chunkY);
+                if (chunkImages.containsKey(key)) continue;
+                MapChunk chunk = getChunk(chunkX, chunkY);
+                if (chunk == null) continue;
+                chunkImages.put(key, factory.renderChunk(chunk));
+                if (visible.contains(chunkX, chunkY)) visibleChanged = true;
+            }
+        }
+
+        Rectangle keep = grow(visible, EVICT_MARGIN);
+        chunks.values().removeIf(chunk -> !keep.contains(chunk.getChunkX(), chunk.getChunkY()));
+        chunkImages.keySet().removeIf(key -> !chunks.containsKey(key));
+        return visibleChanged;
+    }
+
+    /**
+     * Draws the visible chunks that have been rendered
+     */
+    public void draw(Graphics g, JComponent jc, WindowFocus focus, Dimension screenSize) {
+        Rectangle visible = clampToMap(getVisibleChunks(focus, screenSize));
+        int tileSize = focus.getTileSize();
+        int chunkPixels = MapChunk.CHUNK_SIZE * tileSize;
+        int offsetX = (int) (focus.getX() * tileSize);
+        int offsetY = (int) (focus.getY() * tileSize);
+        Rectangle clip = g.getClipBounds();
+
+        for (int chunkY = visible.y; chunkY < visible.y + visible.height; chunkY++) {
+            for (int chunkX = visible.x; chunkX < visible.x + visible.width; chunkX++) {
+                int drawX = chunkX * chunkPixels - offsetX;
+                int drawY = chunkY * chunkPixels - offsetY;
+                if (clip != null && !clip.intersects(drawX, drawY, chunkPixels, chunkPixels)) continue;
+                BufferedImage image = chunkImages.get(MapChunk.key(chunkX, chunkY));
+                if (image != null) {
+                    g.drawImage(image, drawX, drawY, jc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the chunks that are at least partly visible on screen, measured in chunks
+     */
+    private Rectangle getVisibleChunks(WindowFocus focus, Dimension screenSize) {
+        int tileSize = focus.getTileSize();
+        int firstX = (int) focus.getX() / MapChunk.CHUNK_SIZE;
+        int firstY = (int) focus.getY() / MapChunk.CHUNK_SIZE;
+        int lastX = (int) (focus.getX() + (double) screenSize.width / tileSize) / MapChunk.CHUNK_SIZE;
+        int lastY = (int) (focus.getY() + (double) screenSize.height / tileSize) / MapChunk.CHUNK_SIZE;
+        return new Rectangle(firstX, firstY, lastX - firstX + 1, lastY - firstY + 1);
+    }
+
+    private Rectangle grow(Rectangle chunkArea, int margin) {
+        return new Rectangle(chunkArea.x - margin, chunkArea.y - margin, chunkArea.width + 2 * margin, chunkArea.height + 2 * margin);
+    }
+
+    private Rectangle clampToMap(Rectangle chunkArea) {
+        Rectangle map = new Rectangle(0, 0, MapChunk.chunksFor(source.getWidth()), MapChunk.chunksFor(source.getHeight()));
+        return chunkArea.intersection(map);
+    }
+}
@@ -0,0 +1,31 @@
+package src.map;
+
+import src.player.Resource;
+import src.sprites.entities.livingEntities.Character;
+
+import java.util.Arrays;
+
+/**
+ * The map that is played when no map file is given: grass surrounded by water, with a few resources and one hero per player.
+ */
+public class DefaultMap {
+    private static final int SIZE = 100;
+    private static final int WATER_BORDER = 5;
+    private static final int TEAM_COUNT = 2;
+
+    public static MapSource create() {
+        return MemoryMapSource.generate(SIZE, SIZE, TEAM_COUNT, Arrays.asList(
+                MapEntityRecord.obstacle(10, 12),
+                MapEntityRecord.collectable(15, 12, Resource.GOLD),
+                MapEntityRecord.collectable(18, 12, Resource.WOOD),
+                MapEntityRecord.collectable(21, 12, Resource.ORE),
+                MapEntityRecord.hero(10, 18, 0, Character.CharacterEnum.NECROMANCER_LIGHT),
+                MapEntityRecord.hero(14, 18, 1, Character.CharacterEnum.ORC)),
+                (x, y) -> {
+                    if (y <= WATER_BORDER || x <= WATER_BORDER || y + WATER_BORDER >= SIZE || x + WATER_BORDER >= SIZE){
+                        return MapTileType.WATER;
+                    }
+                    return MapTileType.GRASS;
+                });
+    }
+}
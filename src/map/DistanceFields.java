@@ -0,0 +1,245 @@
+package src.map;
+
+import src.player.PlayerTeam;
+import src.sprites.entities.Entity;
+import src.sprites.entities.EntityListener;
+import src.sprites.entities.EntityType;
+import src.sprites.entities.livingEntities.MapLivingEntity;
+import src.tools.aStar.DistanceField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distance fields over the map for the questions that would otherwise take a path search per tile: how far every tile is from the
+ * nearest collectable, from the nearest enemy hero, or which tiles a hero can reach.
+ * <p>
+ * The service keeps its own copy of which tiles are blocked, updated as entities enter, leave and move, and a log of the tiles that
+ * changed. Every change raises the occupancy generation. A field is cached with the generation and sources it was computed for, so
+ * asking again without changes costs nothing, and after a few changes the field is repaired from the logged tiles instead of being
+ * computed again. The fields depend only on which tiles are blocked: the terrain is read once from the map's water mask and is only
+ * read again when loading a save replaces it, after which every field is computed again.
+ */
+public class DistanceFields implements EntityListener {
+    /** Changed tiles that are logged, fields older than the log are computed again instead of repaired */
+    private static final int MAX_LOGGED_CHANGES = 512;
+    private final GameMap map;
+    private final int width;
+    private final int height;
+    private byte[] terrain;
+    private final short[] occupants; // Number of entities on each tile
+    private final byte[] blocked; // Terrain and entities, what the fields are computed over
+    private int generation = 0;
+    private int logStart = 0; // Generation at which the first logged change was made
+    private final int[] changes = new int[MAX_LOGGED_CHANGES];
+    private final Map<Entity, int[]> footprints = new IdentityHashMap<>(); // Tiles each entity occupies: x, y, width, height
+    private final List<MapLivingEntity> units = new ArrayList<>();
+    private final List<Entity> collectables = new ArrayList<>();
+    private final CachedField resourceField = new CachedField();
+    private final Map<PlayerTeam, CachedField> enemyFields = new HashMap<>();
+    private final Map<MapLivingEntity, CachedField> rangeFields = new IdentityHashMap<>();
+
+    DistanceFields(GameMap map, int width, int height) {
+        this.map = map;
+        this.width = width;
+        this.height = height;
+        terrain = map.getTerrainBlocked();
+        occupants = new short[width * height];
+        blocked = terrain.clone();
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        final int[] footprint = {entity.getTileX(), entity.getTileY(), entity.getTileWidth(), entity.getTileHeight()};
+        footprints.put(entity, footprint);
+        occupy(footprint, 1);
+        if (entity.getEntityType() == EntityType.LIVING) units.add((MapLivingEntity) entity);
+        else if (entity.getEntityType() == EntityType.COLLECTABLE) collectables.add(entity);
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        final int[] footprint = footprints.remove(entity);
+        if (footprint == null) return;
+        occupy(footprint, -1);
+        if (entity.getEntityType() == EntityType.LIVING) {
+            units.remove(entity);
+            rangeFields.remove(entity);
+        } else if (entity.getEntityType() == EntityType.COLLECTABLE) {
+            collectables.remove(entity);
+        }
+    }
+
+    /**
+     * Reads the terrain of the map again after it has been replaced
+     */
+    void terrainReplaced() {
+        terrain = map.getTerrainBlocked();
+        for (int i = 0; i < blocked.length; i++) {
+            blocked[i] = occupants[i] > 0 ? 1 : terrain[i];
+        }
+        // Nothing older than this generation can be repaired
+        generation++;
+        logStart = generation;
+    }
+
+    /**
+     * Follows the units that have moved since the last update
+     */
+    public void update() {
+        for (MapLivingEntity unit : units) {
+            final int[] footprint = footprints.get(unit);
+            if (footprint[0] == unit.getTileX() && footprint[1] == unit.getTileY()) continue;
+            occupy(footprint, -1);
+            footprint[0] = unit.getTileX();
+            footprint[1] = unit.getTileY();
+            occupy(footprint, 1);
+        }
+    }
+
+    /**
+     * Adds change to the number of entities on each tile of a footprint, and logs the tiles that were blocked or freed by it
+     */
+    private void occupy(int[] footprint, int change) {
+        final int minX = Math.max(0, footprint[0]);
+        final int minY = Math.max(0, footprint[1]);
+        final int maxX = Math.min(width, footprint[0] + footprint[2]);
+        final int maxY = Math.min(height, footprint[1] + footprint[3]);
+        for (int y = minY; y < maxY; y++) {
+            for (int x = minX; x < maxX; x++) {
+                final int tile = y * width + x;
+                occupants[tile] += change;
+                final byte nowBlocked = occupants[tile] > 0 ? 1 : terrain[tile];
+                if (nowBlocked == blocked[tile]) continue;
+                blocked[tile] = nowBlocked;
+                logChange(tile);
+            }
+        }
+    }
+
+    private void logChange(int tile) {
+        if (generation - logStart == MAX_LOGGED_CHANGES) {
+            logStart = generation;
+        }
+        changes[generation - logStart] = tile;
+        generation++;
+    }
+
+    /**
+     * @return the distance from every tile to the nearest tile of a collectable
+     */
+    public DistanceField getResourceField() {
+        return resourceField.get(getSources(collectables), DistanceField.UNREACHABLE);
+    }
+
+    /**
+     * @return the distance from every tile to the nearest hero of another team than the given one
+     */
+    public DistanceField getEnemyField(PlayerTeam team) {
+        final List<MapLivingEntity> enemies = new ArrayList<>();
+        for (MapLivingEntity unit : units) {
+            if (unit.getPlayerTeam() != team) enemies.add(unit);
+        }
+        return enemyFields.computeIfAbsent(team, key -> new CachedField()).get(getSources(enemies), DistanceField.UNREACHABLE);
+    }
+
+    /**
+     * @param unit a unit on the map
+     * @param maxDistance the most moves the unit may make
+     * @return the distance from the unit to every tile that it can reach within maxDistance moves
+     */
+    public DistanceField getRangeField(MapLivingEntity unit, int maxDistance) {
+        final int[] sources = {unit.getTileY() * width + unit.getTileX()};
+        return rangeFields.computeIfAbsent(unit, key -> new CachedField()).get(sources, maxDistance);
+    }
+
+    /**
+     * Returns a number that changes every time a tile is blocked or freed, or the terrain is replaced
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the blocked tiles as of the last update, 1 = blocked, 0 = free, in row-major order. The array is the one the service
+     * keeps up to date, so it must not be changed, and has to be copied to be read anywhere but the game loop.
+     */
+    byte[] getBlocked() {
+        return blocked;
+    }
+
+    /**
+     * @return the tiles that the entities occupy, in row-major order
+     */
+    private int[] getSources(List<? extends Entity> entities) {
+        int count = 0;
+        for (Entity entity : entities) {
+            final int[] footprint = footprints.get(entity);
+            count += footprint[2] * footprint[3];
+        }
+        final int[] sources = new int[count];
+        count = 0;
+        for (Entity entity : entities) {
+            final int[] footprint = footprints.get(entity);
+            for (int y = Math.max(0, footprint[1]); y < Math.min(height, footprint[1] + footprint[3]); y++) {
+                for (int x = Math.max(0, footprint[0]); x < Math.min(width, footprint[0] + footprint[2]); x++) {
+                    sources[count++] = y * width + x;
+                }
+            }
+        }
+        return Arrays.copyOf(sources, count);
+    }
+
+    /**
+     * A field with the generation and the sources it is up to date with
+     */
+    private class CachedField
+    {
+        private DistanceField field = null;
+        private int fieldGeneration;
+        private int[] sources;
+        private int maxDistance;
+
+        /**
+         * @param newSources the sources as they are now, sorted
+         * @return the field brought up to date
+         */
+        private DistanceField get(int[] newSources, int newMaxDistance) {
+            Arrays.sort(newSources);
+            final boolean sameSources = field != null && maxDistance == newMaxDistance && Arrays.equals(sources, newSources);
+            if (sameSources && fieldGeneration == generation) return field;
+
+            if (field == null || fieldGeneration < logStart || maxDistance != newMaxDistance) {
+                if (field == null) field = new DistanceField(width, height);
+                field.compute(blocked, newSources, newSources.length, newMaxDistance);
+            } else {
+                // The logged tiles, and the sources that were added or removed
+                int[] changed = Arrays.copyOfRange(changes, fieldGeneration - logStart, generation - logStart);
+                int changedCount = changed.length;
+                for (int source : sources) {
+                    if (Arrays.binarySearch(newSources, source) >= 0) continue;
+                    changed = append(changed, changedCount++, source);
+                }
+                for (int source : newSources) {
+                    if (Arrays.binarySearch(sources, source) >= 0) continue;
+                    changed = append(changed, changedCount++, source);
+                }
+                field.repair(blocked, newSources, newSources.length, changed, changedCount);
+            }
+            fieldGeneration = generation;
+            sources = newSources;
+            maxDistance = newMaxDistance;
+            return field;
+        }
+
+        private int[] append(int[] array, int count, int value) {
+            if (count == array.length) array = Arrays.copyOf(array, Math.max(8, count * 2));
+            array[count] = value;
+            return array;
+        }
+    }
+}
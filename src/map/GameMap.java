@@ -1,6 +1,7 @@
 package src.map;
 
 import src.Game;
+import src.player.PlayerResources;
 import src.player.PlayerTeam;
 import src.player.PlayerTeamColor;
 import src.player.Resource;
@@ -8,10 +9,8 @@ import src.sprites.entities.*;
 import src.sprites.entities.livingEntities.Character;
 import src.sprites.entities.livingEntities.MapLivingEntity;
 import src.sprites.entities.MapEntity;
-import src.sprites.SpriteTexture;
 import src.tools.*;
 import src.tools.aStar.AStarPathFinder;
-import src.tools.aStar.Path;
 import src.tools.aStar.PathFinder;
 import src.tools.aStar.PathMap;
 import src.tools.image.ImageLoader;
@@ -19,61 +18,101 @@ import src.tools.input.GameKeyListener;
 import src.tools.input.Key;
 import src.tools.input.KeyEvent;
 import src.tools.input.KeyState;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
+import src.tools.save.SaveReader;
+import src.tools.save.SaveWriter;
 import src.tools.time.DeltaTime;
+import src.sprites.DamageRegion;
 import src.sprites.Sprite;
 import src.sprites.SpriteHandler;
 import src.sprites.SpriteLayer;
+import src.sprites.StaticLayer;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 
 
 public class GameMap implements GameKeyListener {
     public static final int TILE_SIZE = 20;
-    private final List<List<MapTileType>> mapTiles;
+    private static final Logger LOGGER = Logger.getLogger("");
+    private final Game game;
+    private final ChunkCache chunkCache;
+    private WaterMask waterMask;
+    private final MapBackground background;
     private final SpriteHandler mapSpriteHandler;
     private final EntityHandler mapEntityHandler;
-    private final BufferedImage background;
-    private List<SpriteTexture> pathSprites;
     private final PathFinder finder;
-    private final Dimension mapSize = new Dimension(100,100);
+    private final Dimension mapSize;
     private final Dimension screenSize;
     private final WindowFocus windowFocus;
     private final MapTurn mapTurn;
+    private final ArrayList<PlayerTeam> playerTeamList;
+    private final InfluenceMap influenceMap;
+    private final DistanceFields distanceFields;
+    private final RangeOverlay rangeOverlay;
+    private final PathPreview pathPreview;
+    private final Histogram updateTime = Game.metrics.histogram(Metrics.MAP_UPDATE);
+    private int backgroundGeneration = 0;
+    private boolean changed = true;
+    private int paintedFocusGeneration;
     private MapLivingEntity entityFocus;
-    private final int teamCount = 2;
 
     /**
      * Object that contains and controls the map
      * @param screenSize Size of the screen allocated for GameMap
+     * @param mapSource Source of the map's terrain and starting entities
      */
-    public GameMap(Game game, Dimension screenSize, ArrayList<PlayerTeam> playerTeamList)
+    public GameMap(Game game, Dimension screenSize, ArrayList<PlayerTeam> playerTeamList, MapSource mapSource) throws IOException
     {
+        this.game = game;
         this.screenSize = screenSize;
+        mapSize = new Dimension(mapSource.getWidth(), mapSource.getHeight());
         finder = new AStarPathFinder(new PathMap(mapSize, null), 500, true);
         mapSpriteHandler = new SpriteHandler();
-        mapEntityHandler = new EntityHandler();
+        mapEntityHandler = new EntityHandler(mapSpriteHandler.getRenderQueue(), SpriteLayer.ENTITIES);
         windowFocus = new WindowFocus(new Vector2D(), screenSize, mapSize, TILE_SIZE);
-        mapTiles = new ArrayList<>();
-        initPlayerTeams(playerTeamList);
+        this.playerTeamList = playerTeamList;
+        initPlayerTeams(playerTeamList, mapSource.getTeamCount());
         mapTurn = new MapTurn(playerTeamList);
+        influenceMap = new InfluenceMap(mapSize.width, mapSize.height, playerTeamList);
+        mapEntityHandler.addListener(influenceMap);
 
         MapSpriteFactory factory = new MapSpriteFactory(screenSize);
-        background = factory.createBackground(mapSize, mapTiles);
-        for (SpriteTexture borderTexture:factory.createBorders()) {
-            mapSpriteHandler.add(borderTexture, SpriteLayer.LAST);
+        chunkCache = new ChunkCache(mapSource, factory);
+        waterMask = new WaterMask(mapSource);
+        distanceFields = new DistanceFields(this, mapSize.width, mapSize.height);
+        mapEntityHandler.addListener(distanceFields);
+        rangeOverlay = new RangeOverlay(distanceFields, windowFocus, screenSize);
+        mapSpriteHandler.add(rangeOverlay, SpriteLayer.FIRST);
+        background = new MapBackground(chunkCache, windowFocus, screenSize);
+        mapSpriteHandler.setBackground(background);
+        mapSpriteHandler.add(new StaticLayer(size -> new MapSpriteFactory(size).createBorders()), SpriteLayer.LAST);
+        pathPreview = new PathPreview(windowFocus, screenSize);
+        mapSpriteHandler.add(pathPreview, SpriteLayer.LAST);
+
+        for (MapEntityRecord record : mapSource.loadEntities()) {
+            mapEntityHandler.add(createEntity(record));
         }
-        pathSprites = new ArrayList<>();
-
-        mapEntityHandler.add(new MapEntity(new Vector2D(10,12), Game.imageLoader.getImage(ImageLoader.ImageName.ROCK)));
-        mapEntityHandler.add(new CollectableMapEntity(new Vector2D(15, 12), Resource.GOLD, mapEntityHandler));
-        mapEntityHandler.add(new CollectableMapEntity(new Vector2D(18, 12), Resource.WOOD, mapEntityHandler));
-        mapEntityHandler.add(new CollectableMapEntity(new Vector2D(21, 12), Resource.ORE, mapEntityHandler));
-        mapEntityHandler.add(new MapLivingEntity(new Vector2D(10,18), Character.CharacterEnum.NECROMANCER_LIGHT, game, playerTeamList.get(0), mapEntityHandler));
-        mapEntityHandler.add(new MapLivingEntity(new Vector2D(14,18), Character.CharacterEnum.ORC, game, playerTeamList.get(1), mapEntityHandler));
+        chunkCache.update(windowFocus, screenSize);
+    }
+
+    /**
+     * Creates an entity described by a map's entity record
+     */
+    private Entity createEntity(MapEntityRecord record) {
+        Vector2D position = new Vector2D(record.getX(), record.getY());
+        return switch (record.getType()) {
+            case COLLECTABLE -> new CollectableMapEntity(position, record.getResource(), mapEntityHandler);
+            case LIVING -> new MapLivingEntity(position, record.getCharacter(), game, playerTeamList.get(record.getTeam()), mapEntityHandler);
+            default -> new MapEntity(position, Game.imageLoader.getImage(ImageLoader.ImageName.ROCK));
+        };
     }
 
     /**
@@ -88,7 +127,7 @@ public class GameMap implements GameKeyListener {
      * Initializes the game object's list of players since the number would depend on the map
      * @param playerTeamList list to be updated with players
      */
-    private void initPlayerTeams(ArrayList<PlayerTeam> playerTeamList){
+    private void initPlayerTeams(ArrayList<PlayerTeam> playerTeamList, int teamCount){
         for (PlayerTeamColor color: PlayerTeamColor.values()){
             playerTeamList.add(new PlayerTeam(color));
             if (playerTeamList.size() == teamCount) break;
@@ -99,8 +138,23 @@ public class GameMap implements GameKeyListener {
         return mapSize;
     }
 
-    public BufferedImage getBackground(){
-        return background;
+    /**
+     * Creates an image of the whole map's terrain with one pixel per tile
+     */
+    public BufferedImage createOverview(){
+        try {
+            return new MapSpriteFactory(screenSize).createOverview(chunkCache.getSource());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, e.toString(), e);
+            return new BufferedImage(mapSize.width, mapSize.height, BufferedImage.TYPE_INT_ARGB);
+        }
+    }
+
+    /**
+     * Returns a number that changes every time the map's terrain is replaced, e.g when a save is loaded
+     */
+    public int getBackgroundGeneration(){
+        return backgroundGeneration;
     }
 
     public PlayerTeam getCurrentPlayer(){
@@ -112,41 +166,31 @@ public class GameMap implements GameKeyListener {
      * @return Iterable of all the Entity objects located in the GameMap
      */
     public ArrayList<Sprite> getIterator(){
-        mapSpriteHandler.setBackground(background.getSubimage(
-                (int) (windowFocus.getX() * TILE_SIZE), (int) (windowFocus.getY() * TILE_SIZE),
-                (int) (screenSize.getWidth()), ((int) screenSize.getHeight())));
-
-        ArrayList<Sprite> tempList = new ArrayList<>(mapSpriteHandler.getLayerIterator(SpriteLayer.FIRST));
-        tempList.addAll(mapEntityHandler.getIterator());
-        tempList.addAll(mapSpriteHandler.getLayerIterator(SpriteLayer.LAST));
-
-        return tempList;
+        return mapSpriteHandler.getIterator();
     }
 
     /**
-     * Calculates and returns all blocked positions of the map, 1 = blocked, 0 = free
+     * Returns a copy of all blocked positions of the map, 1 = blocked, 0 = free. Water and the tiles of entities are blocked.
      */
-    private int[][] getBlocked(){
-        int[][] blocked = new int[mapSize.width][mapSize.height];
-        for (int x = 0; x < mapTiles.size(); x++){
-            for (int y = 0; y < mapTiles.get(x).size(); y++){
-                if (mapTiles.get(x).get(y) == MapTileType.WATER) {
-                    blocked[x][y] = 1;
-                }
-            }
-        }
+    public byte[] getBlocked(){
+        distanceFields.update();
+        return distanceFields.getBlocked().clone();
+    }
 
-        for (Entity mapEntity : mapEntityHandler.getIterator()) {
-            Vector2D entityPos = mapEntity.getPosition();
-            for (int x = 0; x < mapEntity.getSize().getX(); x++) {
-                for (int y = 0; y < mapEntity.getSize().getY(); y++) {
-                    int iterX = (int)(entityPos.getX() + x);
-                    int iterY = (int)(entityPos.getY() + y);
-                    blocked[iterX][iterY] = 1;
-                }
-            }
-        }
+    /**
+     * @return a map for path searches over the blocked tiles that the distance fields keep, without copying them
+     */
+    private PathMap getPathMap(){
+        distanceFields.update();
+        return new PathMap(mapSize, distanceFields.getBlocked());
+    }
 
+    /**
+     * Like getBlocked, but without the entities: only water is blocked
+     */
+    byte[] getTerrainBlocked(){
+        byte[] blocked = new byte[mapSize.width * mapSize.height];
+        waterMask.copyTo(blocked);
         return blocked;
     }
 
@@ -164,51 +208,243 @@ public class GameMap implements GameKeyListener {
      * @param deltaTime how long since last update
      */
     public void update(DeltaTime deltaTime){
-        updatePathSprites(entityFocus);
-
+        final long updateStart = System.nanoTime();
         mapSpriteHandler.update(deltaTime);
         mapEntityHandler.update(deltaTime, windowFocus);
+        influenceMap.update();
+        distanceFields.update();
+        if (rangeOverlay.update(entityFocus)) changed = true;
+        if (pathPreview.update(entityFocus)) changed = true;
+        mapSpriteHandler.sort();
+        if (chunkCache.update(windowFocus, screenSize)) changed = true;
+        updateTime.recordSince(updateStart);
     }
 
     /**
-     * updates the SpriteTextures which denote where a MapLivingEntity's path lies.
-     * @param entity the Entity whose path is drawn.
+     * Adds the parts of the map screen that have changed since the last call to damage
      */
-    private void updatePathSprites(MapLivingEntity entity) {
-        ArrayList<SpriteTexture> newPathSprites = new ArrayList<>();
-        if (entity != null && entity.getQueuedPath() != null) {
-            Path path = entity.getQueuedPath();
-            final int tileSize = windowFocus.getTileSize();
-            for (int i = 0; i < path.getLength(); i++) {
-                Path.Step step = path.getStep(i);
-
-                BufferedImage stepImage = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
-                Graphics g = stepImage.getGraphics();
-                g.setColor(Color.ORANGE);
-                g.fillRect(0, 0, tileSize, tileSize);
-                SpriteTexture stepSprite = new SpriteTexture(new Vector2D(step.getX() * tileSize, step.getY() * tileSize), 0, stepImage);
-                newPathSprites.add(stepSprite);
+    public void pollDamage(DamageRegion damage) {
+        // Poll every source, so that each one's state is reset
+        mapSpriteHandler.pollDamage(damage);
+        mapEntityHandler.pollDamage(damage);
+        if (changed || windowFocus.getGeneration() != paintedFocusGeneration) damage.addAll();
+        paintedFocusGeneration = windowFocus.getGeneration();
+        changed = false;
+    }
+
+    /**
+     * Orders a unit of the current player to a tile, as if it had been selected and right clicked twice
+     * @param unitTile tile that the unit stands on
+     * @param targetTile tile that the unit moves to, or interacts with
+     */
+    public void orderUnit(Vector2D unitTile, Vector2D targetTile){
+        for (MapLivingEntity entity : mapTurn.getCurrentPlayer().getMapLivingEntities()) {
+            if (entity.getTileX() == (int) unitTile.getX() && entity.getTileY() == (int) unitTile.getY()) {
+                entity.moveTo(getPathMap(), finder, targetTile);
+                return;
             }
         }
-        for (SpriteTexture spriteTexture : pathSprites) {
-            mapSpriteHandler.remove(spriteTexture);
-        }
-        for (SpriteTexture spriteTexture : newPathSprites) {
-            mapSpriteHandler.add(spriteTexture, SpriteLayer.LAST);
-        }
-        pathSprites = newPathSprites;
+        LOGGER.warning("No unit of " + mapTurn.getCurrentPlayer().getTeamColor() + " at " + unitTile);
+    }
+
+    /**
+     * Ends the current player's turn, unless an entity is still moving
+     */
+    public void passTurn(){
+        if (mapEntityHandler.entitiesInactive()) endTurn();
+    }
+
+    /**
+     * @return true if no entity on the map is moving or acting
+     */
+    public boolean isStationary(){
+        return mapEntityHandler.entitiesInactive();
+    }
+
+    /**
+     * @return a new list with all entities on the map
+     */
+    public ArrayList<Entity> getEntities(){
+        return mapEntityHandler.getIterator();
+    }
+
+    /**
+     * @return the influence and threat of the teams' units and the collectables on the map
+     */
+    public InfluenceMap getInfluenceMap(){
+        return influenceMap;
+    }
+
+    /**
+     * @return distance fields over the map, kept up to date with the entities on it
+     */
+    public DistanceFields getDistanceFields(){
+        return distanceFields;
+    }
+
+    /**
+     * Returns the number of turns that have ended, which tells apart two turns of the same player
+     */
+    public int getTurnCount(){
+        return mapTurn.getTurnCount();
     }
 
     private void endTurn(){
         PlayerTeam currentPlayer = mapTurn.getCurrentPlayer();
-        for (Entity iterEntity : mapEntityHandler.getIterator()) {
-            if (iterEntity.getEntityType() == EntityType.LIVING &&
-                    ((MapLivingEntity)iterEntity).getPlayerTeam() == currentPlayer) {
-                ((MapLivingEntity)iterEntity).resetMovement();
+        currentPlayer.endTurn();
+        mapTurn.nextPlayersTurn();
+        entityFocus = null;
+        game.onTurnEnded(currentPlayer);
+    }
+
+    /**
+     * Writes the state of the map: its tiles, the map focus, whose turn it is, the players' resources and all entities
+     * @param out writer to save to
+     */
+    public void save(SaveWriter out) throws IOException {
+        out.writeInt(mapSize.width);
+        out.writeInt(mapSize.height);
+        out.writeInt(playerTeamList.size());
+        out.writeDouble(windowFocus.getX());
+        out.writeDouble(windowFocus.getY());
+        out.writeInt(mapTurn.getPlayerTurnIndex());
+
+        // Tiles are written in row-major order, one row of chunks at a time
+        MapSource source = chunkCache.getSource();
+        TileStore chunkRow = new TileStore(mapSize.width, MapChunk.CHUNK_SIZE, MapTileType.WATER);
+        byte[] row = new byte[mapSize.width];
+        for (int chunkY = 0; chunkY < MapChunk.chunksFor(mapSize.height); chunkY++) {
+            for (int chunkX = 0; chunkX < MapChunk.chunksFor(mapSize.width); chunkX++) {
+                int width = Math.min(MapChunk.CHUNK_SIZE, mapSize.width - chunkX * MapChunk.CHUNK_SIZE);
+                source.loadChunk(chunkX, chunkY).getTiles()
+                        .copyTo(0, 0, chunkRow, chunkX * MapChunk.CHUNK_SIZE, 0, width, MapChunk.CHUNK_SIZE);
+            }
+            int rows = Math.min(MapChunk.CHUNK_SIZE, mapSize.height - chunkY * MapChunk.CHUNK_SIZE);
+            for (int localY = 0; localY < rows; localY++) {
+                chunkRow.getRow(0, localY, row, 0, mapSize.width);
+                out.writeBytes(row, 0, row.length);
             }
         }
-        mapTurn.nextPlayersTurn();
+        for (PlayerTeam team : playerTeamList) {
+            team.getPlayerResources().save(out);
+        }
+
+        ArrayList<Entity> entities = mapEntityHandler.getIterator();
+        out.writeInt(entities.size());
+        for (Entity entity : entities) {
+            out.writeByte(entity.getEntityType().ordinal());
+            out.writeInt(entity.getTileX());
+            out.writeInt(entity.getTileY());
+            switch (entity.getEntityType()) {
+                case COLLECTABLE -> out.writeByte(((CollectableMapEntity) entity).getResource().ordinal());
+                case LIVING -> {
+                    MapLivingEntity livingEntity = (MapLivingEntity) entity;
+                    out.writeByte(livingEntity.getCharacter().ordinal());
+                    out.writeByte(playerTeamList.indexOf(livingEntity.getPlayerTeam()));
+                    out.writeInt(livingEntity.getMovement());
+                    livingEntity.getArmy().save(out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the state of the map with a state written by save. Queued paths and the entity focus are not part of the save. The
+     * whole save is read and checked before anything is replaced, so a save that can't be loaded leaves the map as it was.
+     * @param in reader to load from
+     * @throws IOException if the save can't be read or is corrupt
+     */
+    public void load(SaveReader in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        if (width != mapSize.width || height != mapSize.height) {
+            throw new IOException("Save has map size " + width + "x" + height + ", expected " + mapSize.width + "x" + mapSize.height);
+        }
+        int teamCount = in.readInt();
+        if (teamCount != playerTeamList.size()) {
+            throw new IOException("Save has " + teamCount + " players, expected " + playerTeamList.size());
+        }
+        Vector2D focusPosition = new Vector2D(in.readDouble(), in.readDouble());
+        int playerTurnIndex = in.readInt();
+        if (playerTurnIndex < 0 || playerTurnIndex >= teamCount) {
+            throw new IOException("Corrupt save, turn of player " + playerTurnIndex);
+        }
+
+        MemoryMapSource terrain = new MemoryMapSource(width, height, teamCount, List.of());
+        // Each row of chunks is read into one store which is padded to whole chunks, then cut into chunks
+        int rowWidth = MapChunk.chunksFor(width) * MapChunk.CHUNK_SIZE;
+        byte[] rowTiles = new byte[rowWidth * MapChunk.CHUNK_SIZE];
+        for (int chunkY = 0; chunkY < MapChunk.chunksFor(height); chunkY++) {
+            Arrays.fill(rowTiles, (byte) MapTileType.WATER.ordinal());
+            int rows = Math.min(MapChunk.CHUNK_SIZE, height - chunkY * MapChunk.CHUNK_SIZE);
+            for (int localY = 0; localY < rows; localY++) {
+                in.readBytes(rowTiles, localY * rowWidth, width);
+            }
+            TileStore chunkRow;
+            try {
+                chunkRow = new TileStore(rowWidth, MapChunk.CHUNK_SIZE, rowTiles);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt tiles in save", e);
+            }
+            for (int chunkX = 0; chunkX < MapChunk.chunksFor(width); chunkX++) {
+                TileStore tiles = new TileStore(MapChunk.CHUNK_SIZE, MapChunk.CHUNK_SIZE, MapTileType.WATER);
+                chunkRow.copyTo(chunkX * MapChunk.CHUNK_SIZE, 0, tiles, 0, 0, MapChunk.CHUNK_SIZE, MapChunk.CHUNK_SIZE);
+                terrain.setChunk(new MapChunk(chunkX, chunkY, tiles));
+            }
+        }
+        List<PlayerResources> resources = new ArrayList<>();
+        for (int i = 0; i < teamCount; i++) {
+            PlayerResources loaded = new PlayerResources();
+            loaded.load(in);
+            resources.add(loaded);
+        }
+
+        int entityCount = in.readInt();
+        if (entityCount < 0) throw new IOException("Corrupt save, " + entityCount + " entities");
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < entityCount; i++) {
+            EntityType type = in.readEnum(EntityType.values());
+            Vector2D position = new Vector2D(in.readInt(), in.readInt());
+            Entity entity = switch (type) {
+                case OBSTACLE -> new MapEntity(position, Game.imageLoader.getImage(ImageLoader.ImageName.ROCK));
+                case COLLECTABLE -> new CollectableMapEntity(position, in.readEnum(Resource.values()), mapEntityHandler);
+                case LIVING -> {
+                    Character.CharacterEnum character = in.readEnum(Character.CharacterEnum.values());
+                    int teamIndex = in.readByte();
+                    if (teamIndex < 0 || teamIndex >= teamCount) throw new IOException("Corrupt save, unit of player " + teamIndex);
+                    MapLivingEntity livingEntity = new MapLivingEntity(position, character, game, playerTeamList.get(teamIndex),
+                                                                       mapEntityHandler);
+                    livingEntity.setMovement(in.readInt());
+                    livingEntity.getArmy().load(in);
+                    yield livingEntity;
+                }
+                default -> throw new IOException("Corrupt save, unexpected entity type " + type);
+            };
+            if (entity.getTileX() < 0 || entity.getTileY() < 0 || entity.getTileX() + entity.getTileWidth() > width
+                || entity.getTileY() + entity.getTileHeight() > height) {
+                throw new IOException("Corrupt save, " + type + " at " + position + " is outside of the map");
+            }
+            entities.add(entity);
+        }
+
+        WaterMask loadedMask = new WaterMask(terrain);
+
+        // Everything has been read, nothing can fail from here on
+        for (int i = 0; i < teamCount; i++) {
+            playerTeamList.get(i).getPlayerResources().copyFrom(resources.get(i));
+        }
+        mapEntityHandler.clear();
+        for (Entity entity : entities) {
+            mapEntityHandler.add(entity);
+        }
+        mapTurn.setPlayerTurnIndex(playerTurnIndex);
+        windowFocus.setPosition(focusPosition);
         entityFocus = null;
+        chunkCache.setSource(terrain);
+        waterMask = loadedMask;
+        distanceFields.terrainReplaced();
+        changed = true;
+        backgroundGeneration++;
     }
 
     /**
@@ -217,8 +453,24 @@ public class GameMap implements GameKeyListener {
      * @param mouseButton button that was pressed
      */
     public void onMouseClick(Vector2D mousePos, int mouseButton){
-        Vector2D mouseMapFocus = new Vector2D(mousePos.getX() / TILE_SIZE, mousePos.getY() / TILE_SIZE);
-        Vector2D mouseAbsolutePos = relativeToAbsolutePos(mouseMapFocus);
+        onMapClick(getMapPosition(mousePos), mouseButton);
+    }
+
+    /**
+     * Converts a position on the component, which depends on the map focus, to a position on the map
+     * @param mousePos position of mouse on JFrame
+     * @return the position on the map, measured in tiles
+     */
+    public Vector2D getMapPosition(Vector2D mousePos){
+        return relativeToAbsolutePos(new Vector2D(mousePos.getX() / TILE_SIZE, mousePos.getY() / TILE_SIZE));
+    }
+
+    /**
+     * When a position of the map is clicked on by mouse
+     * @param mouseAbsolutePos position on the map, measured in tiles
+     * @param mouseButton button that was pressed
+     */
+    public void onMapClick(Vector2D mouseAbsolutePos, int mouseButton){
         if(mouseButton == 1){
             for (Entity mapEntity : mapEntityHandler.getIterator()) {
                 if (mapEntity.isOverlap(mouseAbsolutePos) && mapEntity.getEntityType() == EntityType.LIVING){
@@ -228,8 +480,7 @@ public class GameMap implements GameKeyListener {
             }
         }
         else if (mouseButton == 3 && entityFocus != null && entityFocus.getPlayerTeam() == mapTurn.getCurrentPlayer()){
-            PathMap map = new PathMap(mapSize, getBlocked());
-            entityFocus.onMouseClick3(map, finder, mouseAbsolutePos);
+            entityFocus.onMouseClick3(getPathMap(), finder, mouseAbsolutePos);
         }
     }
 
@@ -244,7 +495,7 @@ public class GameMap implements GameKeyListener {
             case DOWN -> windowFocus.addY(mapShiftStep);
             case ESC -> {
                 if (entityFocus != null) entityFocus = null;
-                else System.exit(-1);
+                else game.quit();
             }
             case E -> {
                 if (mapEntityHandler.entitiesInactive()){
@@ -0,0 +1,246 @@
+package src.map;
+
+import src.player.PlayerTeam;
+import src.sprites.entities.CollectableMapEntity;
+import src.sprites.entities.Entity;
+import src.sprites.entities.EntityListener;
+import src.sprites.entities.EntityType;
+import src.sprites.entities.livingEntities.MapLivingEntity;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Influence of every team's units and of the collectables over the tiles of the map, for the AI and the minimap. A unit spreads the
+ * strength of its army, and a collectable the value of its resource, over the tiles within RADIUS of it, fading linearly with the
+ * distance. The threat to a team on a tile is the influence of all other teams there.
+ * <p>
+ * The grids are float arrays in row-major order that are kept up to date incrementally: when a unit moves, its army changes or an entity
+ * enters or leaves the map, only the old and new square around the entity are updated. The map's entity handler reports entities
+ * entering and leaving, and update checks the units for moves once per frame.
+ * <p>
+ * The grids are changed on the game thread and read from the paint thread by the minimap without synchronization, so a tile that is
+ * read while a unit moves may be off until it is read again. The area of the team grids that has changed since the minimap last took
+ * it is kept, so that the minimap only reads the tiles that have changed.
+ */
+public class InfluenceMap implements EntityListener {
+    /** Distance in tiles beyond which an entity has no influence */
+    public static final int RADIUS = 12;
+    /** Expected amount of resources in a collectable */
+    private static final float EXPECTED_AMOUNT = 2;
+    private static final float[] FALLOFF = createFalloff();
+    private final int width;
+    private final int height;
+    private final List<PlayerTeam> teams;
+    private final Map<PlayerTeam, Integer> teamIndices = new IdentityHashMap<>();
+    private final float[][] strength; // Influence of each team's units, in the order of teams
+    private final float[] resources; // Influence of the collectables
+    private final Map<Entity, Stamp> stamps = new IdentityHashMap<>();
+    private final List<Stamp> units = new ArrayList<>();
+    private int generation = 0;
+    // Tiles of the team grids changed since takeChangedArea, guarded by itself. A negative size means that nothing has changed, as adding
+    // to an empty rectangle of size 0 would include its corner.
+    private final Rectangle changedArea = new Rectangle(0, 0, -1, -1);
+
+    /**
+     * @param width width of the map in tiles
+     * @param height height of the map in tiles
+     * @param teams the teams of the map
+     */
+    public InfluenceMap(int width, int height, List<PlayerTeam> teams) {
+        this.width = width;
+        this.height = height;
+        this.teams = teams;
+        strength = new float[teams.size()][width * height];
+        for (int i = 0; i < teams.size(); i++) {
+            teamIndices.put(teams.get(i), i);
+        }
+        resources = new float[width * height];
+    }
+
+    private static float[] createFalloff() {
+        float[] falloff = new float[RADIUS + 1];
+        for (int distance = 0; distance <= RADIUS; distance++) {
+            falloff[distance] = 1 - (float) distance / (RADIUS + 1);
+        }
+        return falloff;
+    }
+
+    @Override
+    public void entityAdded(Entity entity) {
+        if (entity.getEntityType() == EntityType.COLLECTABLE) {
+            final float value = ((CollectableMapEntity) entity).getResource().getValue() * EXPECTED_AMOUNT;
+            stamp(new Stamp(entity, resources, entity.getTileX(), entity.getTileY(), value));
+        } else if (entity.getEntityType() == EntityType.LIVING) {
+            final MapLivingEntity unit = (MapLivingEntity) entity;
+            final Stamp stamp = new Stamp(unit, getGrid(unit.getPlayerTeam()), unit.getTileX(), unit.getTileY(), getStrength(unit));
+            stamp(stamp);
+            units.add(stamp);
+        }
+    }
+
+    @Override
+    public void entityRemoved(Entity entity) {
+        final Stamp stamp = stamps.remove(entity);
+        if (stamp == null) return;
+        spread(stamp, -stamp.value);
+        if (entity.getEntityType() == EntityType.LIVING) units.remove(stamp);
+    }
+
+    /**
+     * Moves the influence of the units that have moved, changed team or whose army has changed since the last update
+     */
+    public void update() {
+        for (Stamp stamp : units) {
+            final MapLivingEntity unit = (MapLivingEntity) stamp.entity;
+            final float[] grid = getGrid(unit.getPlayerTeam());
+            final float value = getStrength(unit);
+            if (unit.getTileX() == stamp.x && unit.getTileY() == stamp.y && grid == stamp.grid && value == stamp.value) continue;
+
+            spread(stamp, -stamp.value);
+            stamp.grid = grid;
+            stamp.x = unit.getTileX();
+            stamp.y = unit.getTileY();
+            stamp.value = value;
+            spread(stamp, value);
+        }
+    }
+
+    private void stamp(Stamp stamp) {
+        stamps.put(stamp.entity, stamp);
+        spread(stamp, stamp.value);
+    }
+
+    /**
+     * Adds value, faded by the distance, to the tiles within RADIUS of the stamp's position
+     */
+    private void spread(Stamp stamp, float value) {
+        final int minX = Math.max(0, stamp.x - RADIUS);
+        final int maxX = Math.min(width - 1, stamp.x + RADIUS);
+        final int minY = Math.max(0, stamp.y - RADIUS);
+        final int maxY = Math.min(height - 1, stamp.y + RADIUS);
+        final float[] grid = stamp.grid;
+        for (int y = minY; y <= maxY; y++) {
+            final int distanceY = Math.abs(y - stamp.y);
+            final int row = y * width;
+            for (int x = minX; x <= maxX; x++) {
+                grid[row + x] += value * FALLOFF[Math.max(distanceY, Math.abs(x - stamp.x))];
+            }
+        }
+        if (grid != resources) {
+            synchronized (changedArea) {
+                changedArea.add(new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+            }
+        }
+        generation++;
+    }
+
+    private float[] getGrid(PlayerTeam team) {
+        return strength[teamIndices.get(team)];
+    }
+
+    private static float getStrength(MapLivingEntity unit) {
+        return (float) unit.getArmy().getStrength();
+    }
+
+    /**
+     * @return the influence of a team's units on a tile, 0 outside of the map
+     */
+    public float getInfluence(PlayerTeam team, int x, int y) {
+        if (!isOnMap(x, y)) return 0;
+        return getGrid(team)[y * width + x];
+    }
+
+    /**
+     * @param team index of the team in getTeams
+     * @return the influence of the team's units on a tile, 0 outside of the map
+     */
+    public float getInfluence(int team, int x, int y) {
+        if (!isOnMap(x, y)) return 0;
+        return strength[team][y * width + x];
+    }
+
+    /**
+     * Stores the tiles of the teams' influence that have changed since the last call in result, and starts over
+     * @return false if nothing has changed
+     */
+    public boolean takeChangedArea(Rectangle result) {
+        synchronized (changedArea) {
+            if (changedArea.width < 0) return false;
+            result.setBounds(changedArea);
+            changedArea.setBounds(0, 0, -1, -1);
+            return true;
+        }
+    }
+
+    /**
+     * @return the influence of every team's units except the given team's on a tile, 0 outside of the map
+     */
+    public float getThreat(PlayerTeam team, int x, int y) {
+        if (!isOnMap(x, y)) return 0;
+        final float[] own = getGrid(team);
+        float threat = 0;
+        for (float[] grid : strength) {
+            if (grid != own) threat += grid[y * width + x];
+        }
+        return threat;
+    }
+
+    /**
+     * @return the influence of the collectables on a tile, measured in gold, 0 outside of the map
+     */
+    public float getResourceValue(int x, int y) {
+        if (!isOnMap(x, y)) return 0;
+        return resources[y * width + x];
+    }
+
+    /**
+     * Returns a number that changes every time the influence changes, e.g for redrawing an overlay only when needed
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the teams whose influence is kept, in the order of the map
+     */
+    public List<PlayerTeam> getTeams() {
+        return Collections.unmodifiableList(teams);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    private boolean isOnMap(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * The influence that one entity has added, so that exactly the same can be taken away
+     */
+    private static class Stamp
+    {
+        private final Entity entity;
+        private float[] grid;
+        private int x;
+        private int y;
+        private float value;
+
+        private Stamp(Entity entity, float[] grid, int x, int y, float value) {
+            this.entity = entity;
+            this.grid = grid;
+            this.x = x;
+            this.y = y;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package src.map;
+
+import src.sprites.Sprite;
+import src.tools.Vector2D;
+import src.tools.WindowFocus;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Sprite which draws the visible part of the map's terrain from the chunks in a ChunkCache.
+ */
+public class MapBackground implements Sprite {
+    private final ChunkCache chunkCache;
+    private final WindowFocus windowFocus;
+    private final Dimension screenSize;
+
+    public MapBackground(ChunkCache chunkCache, WindowFocus windowFocus, Dimension screenSize) {
+        this.chunkCache = chunkCache;
+        this.windowFocus = windowFocus;
+        this.screenSize = screenSize;
+    }
+
+    @Override
+    public Vector2D getPosition() {
+        return new Vector2D();
+    }
+
+    @Override
+    public Vector2D getSize() {
+        return new Vector2D(screenSize.width, screenSize.height);
+    }
+
+    @Override
+    public double getRotation() {
+        return 0;
+    }
+
+    @Override
+    public void draw(Graphics g, JComponent jc) {
+        chunkCache.draw(g, jc, windowFocus, screenSize);
+    }
+}
@@ -0,0 +1,100 @@
+package src.map;
+
+/**
+ * A square part of the map's terrain, CHUNK_SIZE tiles wide. The terrain is stored, streamed and rendered in chunks so that maps
+ * don't have to fit in memory, or in one image, as a whole. Chunks are never modified after they are created.
+ */
+public class MapChunk {
+    public static final int CHUNK_SIZE = 16;
+    private final int chunkX;
+    private final int chunkY;
+    private final TileStore tiles;
+
+    /**
+     * @param chunkX x position of the chunk, measured in chunks
+     * @param chunkY y position of the chunk, measured in chunks
+     * @param tiles the chunk's tiles, tiles that are outside of the map are WATER
+     */
+    public MapChunk(int chunkX, int chunkY, TileStore tiles) {
+        if (tiles.getWidth() != CHUNK_SIZE || tiles.getHeight() != CHUNK_SIZE) {
+            throw new IllegalArgumentException("A chunk is " + CHUNK_SIZE + " tiles wide and high");
+        }
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Creates a chunk by asking tileFunction for the type of each of its tiles
+     * @param width width of the map, measured in tiles
+     * @param height height of the map, measured in tiles
+     */
+    public static MapChunk generate(int chunkX, int chunkY, int width, int height, TileFunction tileFunction) {
+        TileStore tiles = new TileStore(CHUNK_SIZE, CHUNK_SIZE, MapTileType.WATER);
+        for (int localY = 0; localY < CHUNK_SIZE; localY++) {
+            for (int localX = 0; localX < CHUNK_SIZE; localX++) {
+                int x = chunkX * CHUNK_SIZE + localX;
+                int y = chunkY * CHUNK_SIZE + localY;
+                if (x < width && y < height) tiles.set(localX, localY, tileFunction.getTile(x, y));
+            }
+        }
+        return new MapChunk(chunkX, chunkY, tiles);
+    }
+
+    /**
+     * Creates a chunk by copying its tiles out of a store which holds the whole map
+     */
+    public static MapChunk slice(int chunkX, int chunkY, TileStore mapTiles) {
+        TileStore tiles = new TileStore(CHUNK_SIZE, CHUNK_SIZE, MapTileType.WATER);
+        int x = chunkX * CHUNK_SIZE;
+        int y = chunkY * CHUNK_SIZE;
+        mapTiles.copyTo(x, y, tiles, 0, 0,
+                Math.min(CHUNK_SIZE, mapTiles.getWidth() - x), Math.min(CHUNK_SIZE, mapTiles.getHeight() - y));
+        return new MapChunk(chunkX, chunkY, tiles);
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkY() {
+        return chunkY;
+    }
+
+    /**
+     * @param localX x position within the chunk
+     * @param localY y position within the chunk
+     */
+    public MapTileType getTile(int localX, int localY) {
+        return tiles.get(localX, localY);
+    }
+
+    /**
+     * Returns the chunk's tiles for bulk reads. Must not be modified.
+     */
+    public TileStore getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Returns a key which identifies the chunk at the given position, for use in maps
+     */
+    public static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns how many chunks are needed to cover the given number of tiles
+     */
+    public static int chunksFor(int tiles) {
+        return (tiles + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Function which decides the type of the tile at an absolute map position
+     */
+    @FunctionalInterface
+    public interface TileFunction {
+        MapTileType getTile(int x, int y);
+    }
+}
@@ -0,0 +1,80 @@
+package src.map;
+
+import src.player.Resource;
+import src.sprites.entities.EntityType;
+import src.sprites.entities.livingEntities.Character;
+
+/**
+ * Description of an entity that is placed on a map when the map is created, e.g a rock, a collectable or a player's starting hero.
+ */
+public class MapEntityRecord {
+    private final EntityType type;
+    private final int x;
+    private final int y;
+    private final int value;
+    private final int character;
+
+    private MapEntityRecord(EntityType type, int x, int y, int value, int character) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+        this.character = character;
+    }
+
+    /**
+     * Creates a record from its raw values, e.g when reading a map file
+     * @param value resource ordinal of a collectable, or team index of a hero
+     * @param character character ordinal of a hero
+     */
+    public static MapEntityRecord of(EntityType type, int x, int y, int value, int character) {
+        return new MapEntityRecord(type, x, y, value, character);
+    }
+
+    public static MapEntityRecord obstacle(int x, int y) {
+        return new MapEntityRecord(EntityType.OBSTACLE, x, y, 0, 0);
+    }
+
+    public static MapEntityRecord collectable(int x, int y, Resource resource) {
+        return new MapEntityRecord(EntityType.COLLECTABLE, x, y, resource.ordinal(), 0);
+    }
+
+    /**
+     * @param team index of the team in the game's list of players
+     */
+    public static MapEntityRecord hero(int x, int y, int team, Character.CharacterEnum character) {
+        return new MapEntityRecord(EntityType.LIVING, x, y, team, character.ordinal());
+    }
+
+    public EntityType getType() {
+        return type;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public Resource getResource() {
+        return Resource.values()[value];
+    }
+
+    public int getTeam() {
+        return value;
+    }
+
+    public int getCharacterOrdinal() {
+        return character;
+    }
+
+    public Character.CharacterEnum getCharacter() {
+        return Character.CharacterEnum.values()[character];
+    }
+}
@@ -0,0 +1,228 @@
+package src.map;
+
+import src.player.Resource;
+import src.sprites.entities.EntityType;
+import src.sprites.entities.livingEntities.Character;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A map stored on disk, split into chunks which are read on demand.
+ *
+ * The file starts with a header (magic number, version, width, height, chunk size, layer count and team count) followed by an index
+ * with one entry per chunk in row-major order: the file offset of the chunk and the number of entities in it. Each chunk record holds
+ * its entities (type, position within the chunk, value and character, one byte each) followed by one byte per tile for every layer.
+ * Only the terrain layer is used, later layers are skipped when reading.
+ */
+public class MapFile implements MapSource, Closeable {
+    /** "HOMM" */
+    private static final int MAGIC = 0x484F4D4D;
+    public static final byte VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + 4;
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Short.BYTES;
+    private static final int ENTITY_RECORD_SIZE = 5;
+    private static final int TERRAIN_LAYERS = 1;
+    private static final int CHUNK_TILES = MapChunk.CHUNK_SIZE * MapChunk.CHUNK_SIZE;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int teamCount;
+    private final int chunksWide;
+    private final long[] chunkOffsets;
+    private final int[] chunkEntityCounts;
+
+    private MapFile(FileChannel channel, int width, int height, int teamCount, long[] chunkOffsets,
+                    int[] chunkEntityCounts) {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.teamCount = teamCount;
+        this.chunksWide = MapChunk.chunksFor(width);
+        this.chunkOffsets = chunkOffsets;
+        this.chunkEntityCounts = chunkEntityCounts;
+    }
+
+    /**
+     * Opens a map file and reads its header and chunk index. Chunks are read when they are loaded.
+     */
+    public static MapFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) throw new IOException(file + " is not a map file");
+            byte version = header.get();
+            if (version != VERSION) throw new IOException("Unsupported map version " + version);
+            int width = header.getInt();
+            int height = header.getInt();
+            int chunkSize = header.get() & 0xFF;
+            int layerCount = header.get() & 0xFF;
+            int teamCount = header.get() & 0xFF;
+            if (chunkSize != MapChunk.CHUNK_SIZE) throw new IOException("Unsupported chunk size " + chunkSize);
+            if (width <= 0 || height <= 0 || layerCount < TERRAIN_LAYERS) throw new IOException("Corrupt map header in " + file);
+
+            int chunkCount = MapChunk.chunksFor(width) * MapChunk.chunksFor(height);
+            ByteBuffer index = readFully(channel, HEADER_SIZE, chunkCount * INDEX_ENTRY_SIZE);
+            long[] chunkOffsets = new long[chunkCount];
+            int[] chunkEntityCounts = new int[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                chunkOffsets[i] = index.getLong();
+                chunkEntityCounts[i] = index.getShort() & 0xFFFF;
+            }
+            return new MapFile(channel, width, height, teamCount, chunkOffsets, chunkEntityCounts);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a map to disk. The chunks are loaded from the source one at a time, so the whole map is never in memory.
+     */
+    public static void write(Path file, MapSource source) throws IOException {
+        int chunksWide = MapChunk.chunksFor(source.getWidth());
+        int chunksHigh = MapChunk.chunksFor(source.getHeight());
+        int chunkCount = chunksWide * chunksHigh;
+
+        Map<Long, List<MapEntityRecord>> chunkEntities = new HashMap<>();
+        for (MapEntityRecord entity : source.loadEntities()) {
+            long key = MapChunk.key(entity.getX() / MapChunk.CHUNK_SIZE, entity.getY() / MapChunk.CHUNK_SIZE);
+            chunkEntities.computeIfAbsent(key, k -> new ArrayList<>()).add(entity);
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put(VERSION).putInt(source.getWidth()).putInt(source.getHeight())
+                    .put((byte) MapChunk.CHUNK_SIZE).put((byte) TERRAIN_LAYERS).put((byte) source.getTeamCount()).flip();
+            writeFully(channel, 0, header);
+
+            ByteBuffer index = ByteBuffer.allocate(chunkCount * INDEX_ENTRY_SIZE);
+            long offset = HEADER_SIZE + (long) index.capacity();
+            for (int chunkY = 0; chunkY < chunksHigh; chunkY++) {
+                for (int chunkX = 0; chunkX < chunksWide; chunkX++) {
+                    List<MapEntityRecord> entities = chunkEntities.getOrDefault(MapChunk.key(chunkX, chunkY), List.of());
+                    if (entities.size() > 0xFFFF) throw new IOException("Too many entities in chunk " + chunkX + "," + chunkY);
+
+                    ByteBuffer record = ByteBuffer.allocate(entities.size() * ENTITY_RECORD_SIZE + CHUNK_TILES * TERRAIN_LAYERS);
+                    for (MapEntityRecord entity : entities) {
+                        record.put((byte) entity.getType().ordinal())
+                                .put((byte) (entity.getX() % MapChunk.CHUNK_SIZE))
+                                .put((byte) (entity.getY() % MapChunk.CHUNK_SIZE))
+                                .put((byte) entity.getValue())
+                                .put((byte) entity.getCharacterOrdinal());
+                    }
+                    TileStore tiles = source.loadChunk(chunkX, chunkY).getTiles();
+                    tiles.getAll(record.array(), record.position());
+                    record.position(record.position() + CHUNK_TILES);
+                    record.flip();
+
+                    index.putLong(offset).putShort((short) entities.size());
+                    offset += writeFully(channel, offset, record);
+                }
+            }
+            index.flip();
+            writeFully(channel, HEADER_SIZE, index);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTeamCount() {
+        return teamCount;
+    }
+
+    /**
+     * Reads one chunk's terrain. Uses positional reads only, so it is safe to call from several threads.
+     */
+    @Override
+    public MapChunk loadChunk(int chunkX, int chunkY) throws IOException {
+        int chunkIndex = chunkY * chunksWide + chunkX;
+        long tilesOffset = chunkOffsets[chunkIndex] + (long) chunkEntityCounts[chunkIndex] * ENTITY_RECORD_SIZE;
+        ByteBuffer buffer = readFully(channel, tilesOffset, CHUNK_TILES);
+
+        byte[] tiles = new byte[CHUNK_TILES];
+        buffer.get(tiles);
+        try {
+            return new MapChunk(chunkX, chunkY, new TileStore(MapChunk.CHUNK_SIZE, MapChunk.CHUNK_SIZE, tiles));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt tile in chunk " + chunkX + "," + chunkY, e);
+        }
+    }
+
+    /**
+     * Reads the entity part of every chunk that has entities. Chunks without entities are skipped without reading.
+     */
+    @Override
+    public List<MapEntityRecord> loadEntities() throws IOException {
+        List<MapEntityRecord> entities = new ArrayList<>();
+        for (int chunkIndex = 0; chunkIndex < chunkOffsets.length; chunkIndex++) {
+            int count = chunkEntityCounts[chunkIndex];
+            if (count == 0) continue;
+
+            int chunkX = chunkIndex % chunksWide;
+            int chunkY = chunkIndex / chunksWide;
+            ByteBuffer buffer = readFully(channel, chunkOffsets[chunkIndex], count * ENTITY_RECORD_SIZE);
+            for (int i = 0; i < count; i++) {
+                int typeOrdinal = buffer.get() & 0xFF;
+                int x = chunkX * MapChunk.CHUNK_SIZE + (buffer.get() & 0xFF);
+                int y = chunkY * MapChunk.CHUNK_SIZE + (buffer.get() & 0xFF);
+                int value = buffer.get() & 0xFF;
+                int character = buffer.get() & 0xFF;
+                if (typeOrdinal >= EntityType.values().length || character >= Character.CharacterEnum.values().length) {
+                    throw new IOException("Corrupt entity in chunk " + chunkX + "," + chunkY);
+                }
+                EntityType type = EntityType.values()[typeOrdinal];
+                boolean isValueValid = switch (type) {
+                    case COLLECTABLE -> value < Resource.values().length;
+                    case LIVING -> value < teamCount;
+                    default -> true;
+                };
+                if (!isValueValid) throw new IOException("Corrupt entity in chunk " + chunkX + "," + chunkY);
+                entities.add(MapEntityRecord.of(type, x, y, value, character));
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of map file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int writeFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + length - buffer.remaining());
+        }
+        return length;
+    }
+}
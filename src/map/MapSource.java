@@ -0,0 +1,31 @@
+package src.map;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Something that a GameMap's terrain and starting entities can be loaded from, e.g a map file.
+ */
+public interface MapSource {
+    /**
+     * @return width of the map, measured in tiles
+     */
+    int getWidth();
+
+    /**
+     * @return height of the map, measured in tiles
+     */
+    int getHeight();
+
+    int getTeamCount();
+
+    /**
+     * Loads one chunk of terrain. May be called many times for the same chunk, since chunks are evicted when far away.
+     */
+    MapChunk loadChunk(int chunkX, int chunkY) throws IOException;
+
+    /**
+     * Loads the entities that are placed on the map when it is created.
+     */
+    List<MapEntityRecord> loadEntities() throws IOException;
+}
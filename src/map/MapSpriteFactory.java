@@ -7,6 +7,7 @@ import src.tools.Vector2D;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -77,38 +78,79 @@ public class MapSpriteFactory {
     }
 
     /**
-     * Create background image and initialize mapTiles
-     * @param mapSize Size of the map the background is made from
-     * @param mapTiles List of list of the tile types the map consists of
-     * @return Fully developed background image
+     * Renders the terrain of a chunk
+     * @param chunk Chunk to render
+     * @return Image of the chunk, CHUNK_SIZE tiles wide
      */
-    public BufferedImage createBackground(Dimension mapSize, List<List<MapTileType>> mapTiles){
-        BufferedImage bg = new BufferedImage(mapSize.width * TILE_SIZE, mapSize.height * TILE_SIZE, TYPE_INT_ARGB);
-        Graphics g = bg.getGraphics();
-        for (int x = 0; x < mapSize.width; x++){
-            List<MapTileType> current;
-            current = new ArrayList<>(mapSize.height);
-
-            for (int y = 0; y < mapSize.height; y++){
-                MapTileType type = MapTileType.GRASS;
-                if (y <= 5 || x <= 5 || y + 5 >= mapSize.height || x + 5 >= mapSize.width){
-                    type = MapTileType.WATER;
-                }
+    public BufferedImage renderChunk(MapChunk chunk){
+        final int chunkPixels = MapChunk.CHUNK_SIZE * TILE_SIZE;
+        BufferedImage image = new BufferedImage(chunkPixels, chunkPixels, TYPE_INT_ARGB);
+        BufferedImage[] tileImages = new BufferedImage[MapTileType.values().length];
+        for (MapTileType type : MapTileType.values()){
+            tileImages[type.ordinal()] = getTileImage(type);
+        }
 
-                BufferedImage toDraw;
+        Graphics g = image.getGraphics();
+        TileStore tiles = chunk.getTiles();
+        for (int y = 0; y < MapChunk.CHUNK_SIZE; y++){
+            for (int x = 0; x < MapChunk.CHUNK_SIZE; x++){
+                g.drawImage(tileImages[tiles.getOrdinal(x, y)], x * TILE_SIZE, y * TILE_SIZE, null);
+            }
+        }
+        g.dispose();
+        return image;
+    }
 
-                switch (type){
-                    case GRASS -> toDraw = Game.imageLoader.getImage(ImageLoader.ImageName.GRASS);
-                    case WATER -> toDraw = Game.imageLoader.getImage(ImageLoader.ImageName.WATER);
-                    default -> toDraw = Game.imageLoader.getImage(ImageLoader.ImageName.ERROR);
-                }
+    /**
+     * Creates an overview of the whole map with one pixel per tile, coloured by the average colour of the tile's image.
+     * The chunks are loaded directly from the source one at a time, so they don't become resident.
+     * @param source Source of the map's terrain
+     * @return Image which is as many pixels wide and high as the map is tiles
+     */
+    public BufferedImage createOverview(MapSource source) throws IOException {
+        BufferedImage overview = new BufferedImage(source.getWidth(), source.getHeight(), TYPE_INT_ARGB);
+        int[] tileColors = new int[MapTileType.values().length];
+        for (MapTileType type : MapTileType.values()){
+            tileColors[type.ordinal()] = getAverageColor(getTileImage(type));
+        }
 
-                g.drawImage(toDraw, x * TILE_SIZE, y * TILE_SIZE, null);
-                current.add(type);
+        int[] pixels = new int[MapChunk.CHUNK_SIZE * MapChunk.CHUNK_SIZE];
+        for (int chunkY = 0; chunkY < MapChunk.chunksFor(source.getHeight()); chunkY++){
+            for (int chunkX = 0; chunkX < MapChunk.chunksFor(source.getWidth()); chunkX++){
+                TileStore tiles = source.loadChunk(chunkX, chunkY).getTiles();
+                int width = Math.min(MapChunk.CHUNK_SIZE, source.getWidth() - chunkX * MapChunk.CHUNK_SIZE);
+                int height = Math.min(MapChunk.CHUNK_SIZE, source.getHeight() - chunkY * MapChunk.CHUNK_SIZE);
+                for (int y = 0; y < height; y++){
+                    for (int x = 0; x < width; x++){
+                        pixels[y * MapChunk.CHUNK_SIZE + x] = tileColors[tiles.getOrdinal(x, y)];
+                    }
+                }
+                overview.setRGB(chunkX * MapChunk.CHUNK_SIZE, chunkY * MapChunk.CHUNK_SIZE, width, height,
+                        pixels, 0, MapChunk.CHUNK_SIZE);
             }
+        }
+        return overview;
+    }
 
-            mapTiles.add(current);
+    private BufferedImage getTileImage(MapTileType type){
+        return switch (type){
+            case GRASS -> Game.imageLoader.getImage(ImageLoader.ImageName.GRASS);
+            case WATER -> Game.imageLoader.getImage(ImageLoader.ImageName.WATER);
+            default -> Game.imageLoader.getImage(ImageLoader.ImageName.ERROR);
+        };
+    }
+
+    private int getAverageColor(BufferedImage image){
+        long red = 0, green = 0, blue = 0;
+        for (int y = 0; y < image.getHeight(); y++){
+            for (int x = 0; x < image.getWidth(); x++){
+                int rgb = image.getRGB(x, y);
+                red += (rgb >> 16) & 0xFF;
+                green += (rgb >> 8) & 0xFF;
+                blue += rgb & 0xFF;
+            }
         }
-        return bg;
+        long pixels = (long) image.getWidth() * image.getHeight();
+        return new Color((int) (red / pixels), (int) (green / pixels), (int) (blue / pixels)).getRGB();
     }
 }
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 public class MapTurn {
     private final ArrayList<PlayerTeam> playerTeamList;
     private int playerTurnIndex = 0;
+    private int turnCount = 0;
 
     public MapTurn(ArrayList<PlayerTeam> playerTeamList){
         this.playerTeamList = playerTeamList;
@@ -14,10 +15,30 @@ public class MapTurn {
 
     public void nextPlayersTurn(){
         playerTurnIndex++;
+        turnCount++;
         if (playerTurnIndex >= playerTeamList.size()) playerTurnIndex = 0;
     }
 
     public PlayerTeam getCurrentPlayer() {
         return playerTeamList.get(playerTurnIndex);
     }
+
+    /**
+     * Returns the number of turns that have ended, which tells apart two turns of the same player
+     */
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    public int getPlayerTurnIndex() {
+        return playerTurnIndex;
+    }
+
+    public void setPlayerTurnIndex(int playerTurnIndex) {
+        if (playerTurnIndex < 0 || playerTurnIndex >= playerTeamList.size()) {
+            throw new IllegalArgumentException("No player with index " + playerTurnIndex);
+        }
+        this.playerTurnIndex = playerTurnIndex;
+        turnCount++;
+    }
 }
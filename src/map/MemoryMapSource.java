@@ -0,0 +1,68 @@
+package src.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MapSource which keeps all chunks in memory, e.g for the default map or a map that was loaded from a save.
+ */
+public class MemoryMapSource implements MapSource {
+    private final int width;
+    private final int height;
+    private final int teamCount;
+    private final MapChunk[] chunks;
+    private final int chunksWide;
+    private final List<MapEntityRecord> entities;
+
+    public MemoryMapSource(int width, int height, int teamCount, List<MapEntityRecord> entities) {
+        this.width = width;
+        this.height = height;
+        this.teamCount = teamCount;
+        this.entities = new ArrayList<>(entities);
+        chunksWide = MapChunk.chunksFor(width);
+        chunks = new MapChunk[chunksWide * MapChunk.chunksFor(height)];
+    }
+
+    /**
+     * Creates a map whose tiles are decided by tileFunction
+     */
+    public static MemoryMapSource generate(int width, int height, int teamCount, List<MapEntityRecord> entities,
+                                           MapChunk.TileFunction tileFunction) {
+        MemoryMapSource source = new MemoryMapSource(width, height, teamCount, entities);
+        for (int chunkY = 0; chunkY < MapChunk.chunksFor(height); chunkY++) {
+            for (int chunkX = 0; chunkX < source.chunksWide; chunkX++) {
+                source.setChunk(MapChunk.generate(chunkX, chunkY, width, height, tileFunction));
+            }
+        }
+        return source;
+    }
+
+    public void setChunk(MapChunk chunk) {
+        chunks[chunk.getChunkY() * chunksWide + chunk.getChunkX()] = chunk;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTeamCount() {
+        return teamCount;
+    }
+
+    @Override
+    public MapChunk loadChunk(int chunkX, int chunkY) {
+        return chunks[chunkY * chunksWide + chunkX];
+    }
+
+    @Override
+    public List<MapEntityRecord> loadEntities() {
+        return new ArrayList<>(entities);
+    }
+}
@@ -0,0 +1,141 @@
+package src.map;
+
+import src.sprites.Sprite;
+import src.sprites.entities.livingEntities.MapLivingEntity;
+import src.tools.Vector2D;
+import src.tools.WindowFocus;
+import src.tools.aStar.Path;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the path that the selected hero has queued, one tile per step with an arrow towards the next step. The step images are made
+ * once, one for each of the eight directions and one without an arrow for the last step, and every step is drawn with one of them.
+ * The steps are copied from the path only when the hero's queued path is replaced or a step is taken, not every frame.
+ */
+public class PathPreview implements Sprite {
+    private static final Color STEP_COLOR = Color.ORANGE;
+    private static final Color ARROW_COLOR = new Color(120, 60, 0);
+    /** Index of the image without an arrow, in the middle of the images for the directions from (-1, -1) to (1, 1) */
+    private static final int LAST_STEP = 4;
+    private final WindowFocus windowFocus;
+    private final Dimension screenSize;
+    private final BufferedImage[] stepImages;
+    private Path path = null;
+    private int length = 0;
+    private volatile Steps steps = null;
+
+    public PathPreview(WindowFocus windowFocus, Dimension screenSize) {
+        this.windowFocus = windowFocus;
+        this.screenSize = screenSize;
+        stepImages = createStepImages(windowFocus.getTileSize());
+    }
+
+    /**
+     * @return an image for every direction of a step, at index (dy + 1) * 3 + dx + 1, and the image of the last step at LAST_STEP
+     */
+    private static BufferedImage[] createStepImages(int tileSize) {
+        final BufferedImage[] images = new BufferedImage[9];
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                final BufferedImage image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+                final Graphics2D g = image.createGraphics();
+                g.setColor(STEP_COLOR);
+                g.fillRect(0, 0, tileSize, tileSize);
+                if (dx != 0 || dy != 0) {
+                    // An arrow pointing right, turned towards the next step
+                    final double centre = tileSize * 0.5;
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g.rotate(Math.atan2(dy, dx), centre, centre);
+                    g.setColor(ARROW_COLOR);
+                    g.setStroke(new BasicStroke(Math.max(1, tileSize / 10f)));
+                    final int tail = (int) (tileSize * 0.2);
+                    final int head = (int) (tileSize * 0.8);
+                    final int middle = (int) centre;
+                    final int wing = (int) (tileSize * 0.2);
+                    g.drawLine(tail, middle, head, middle);
+                    g.drawLine(head, middle, head - wing, middle - wing);
+                    g.drawLine(head, middle, head - wing, middle + wing);
+                }
+                g.dispose();
+                images[(dy + 1) * 3 + dx + 1] = image;
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Copies the steps of the selected hero's queued path if it has changed since the last update
+     * @param selected the selected hero, or null
+     * @return true if the preview has changed and the screen has to be drawn again
+     */
+    public boolean update(MapLivingEntity selected) {
+        final Path queuedPath = selected == null ? null : selected.getQueuedPath();
+        final int queuedLength = queuedPath == null ? 0 : queuedPath.getLength();
+        // Walking along the path removes its first step, so a path that is the same object but shorter has changed too
+        if (queuedPath == path && queuedLength == length) return false;
+        path = queuedPath;
+        length = queuedLength;
+        steps = queuedLength == 0 ? null : new Steps(queuedPath);
+        return true;
+    }
+
+    @Override
+    public Vector2D getPosition() {
+        return new Vector2D();
+    }
+
+    @Override
+    public Vector2D getSize() {
+        return new Vector2D(screenSize.width, screenSize.height);
+    }
+
+    @Override
+    public double getRotation() {
+        return 0;
+    }
+
+    @Override
+    public void draw(Graphics g, JComponent jc) {
+        final Steps current = steps;
+        if (current == null) return;
+        final int tileSize = windowFocus.getTileSize();
+        final double focusX = windowFocus.getX();
+        final double focusY = windowFocus.getY();
+        for (int i = 0; i < current.x.length; i++) {
+            final int x = (int) Math.round((current.x[i] - focusX) * tileSize);
+            final int y = (int) Math.round((current.y[i] - focusY) * tileSize);
+            if (x + tileSize <= 0 || y + tileSize <= 0 || x >= screenSize.width || y >= screenSize.height) continue;
+            g.drawImage(stepImages[current.images[i]], x, y, jc);
+        }
+    }
+
+    /**
+     * The tiles of a path and the image each is drawn with, copied so that drawing doesn't read the path while a step is taken
+     */
+    private static class Steps
+    {
+        private final int[] x;
+        private final int[] y;
+        private final int[] images;
+
+        private Steps(Path path) {
+            final int length = path.getLength();
+            x = new int[length];
+            y = new int[length];
+            images = new int[length];
+            for (int i = 0; i < length; i++) {
+                x[i] = path.getX(i);
+                y[i] = path.getY(i);
+            }
+            for (int i = 0; i < length - 1; i++) {
+                final int dx = Integer.signum(x[i + 1] - x[i]);
+                final int dy = Integer.signum(y[i + 1] - y[i]);
+                images[i] = (dy + 1) * 3 + dx + 1;
+            }
+            images[length - 1] = LAST_STEP;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package src.map;
+
+import src.sprites.Sprite;
+import src.sprites.entities.livingEntities.MapLivingEntity;
+import src.tools.Vector2D;
+import src.tools.WindowFocus;
+import src.tools.aStar.DistanceField;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Tints the tiles that the selected hero can reach with the movement it has left. The tiles come from the hero's range field, a flood
+ * fill bounded by the movement, and are drawn into an image with one pixel per tile that covers the square the hero could reach. The
+ * image is made again only when the hero, its tile or its movement changes or a tile on the map is blocked or freed, and is scaled to
+ * the tile size when drawn.
+ */
+public class RangeOverlay implements Sprite {
+    /** Opacity of the tint on a reachable tile */
+    private static final int ALPHA = 70;
+    private final DistanceFields distanceFields;
+    private final WindowFocus windowFocus;
+    private final Dimension screenSize;
+    private MapLivingEntity entity = null;
+    private int tileX;
+    private int tileY;
+    private int movement;
+    private int generation;
+    private volatile Overlay overlay = null;
+
+    public RangeOverlay(DistanceFields distanceFields, WindowFocus windowFocus, Dimension screenSize) {
+        this.distanceFields = distanceFields;
+        this.windowFocus = windowFocus;
+        this.screenSize = screenSize;
+    }
+
+    /**
+     * Makes the overlay again if the selection or the map has changed since the last update
+     * @param selected the selected hero, or null
+     * @return true if the overlay has changed and the screen has to be drawn again
+     */
+    public boolean update(MapLivingEntity selected) {
+        if (selected == null) {
+            if (entity == null) return false;
+            entity = null;
+            overlay = null;
+            return true;
+        }
+        if (selected == entity && selected.getTileX() == tileX && selected.getTileY() == tileY && selected.getMovement() == movement
+            && distanceFields.getGeneration() == generation) {
+            return false;
+        }
+        entity = selected;
+        tileX = selected.getTileX();
+        tileY = selected.getTileY();
+        movement = Math.max(0, selected.getMovement());
+        generation = distanceFields.getGeneration();
+        overlay = createOverlay(distanceFields.getRangeField(selected, movement), selected.getPlayerTeam().getColor());
+        return true;
+    }
+
+    /**
+     * Paints the reachable tiles within movement of the hero into an image, one pixel per tile
+     */
+    private Overlay createOverlay(DistanceField field, Color color) {
+        final int minX = Math.max(0, tileX - movement);
+        final int minY = Math.max(0, tileY - movement);
+        final int maxX = Math.min(field.getWidth() - 1, tileX + movement);
+        final int maxY = Math.min(field.getHeight() - 1, tileY + movement);
+        final int width = maxX - minX + 1;
+        final int height = maxY - minY + 1;
+        final int tint = ALPHA << 24 | color.getRGB() & 0xFFFFFF;
+        final int[] pixels = new int[width * height];
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (field.getDistance(x, y) <= movement) pixels[(y - minY) * width + x - minX] = tint;
+            }
+        }
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return new Overlay(image, minX, minY);
+    }
+
+    @Override
+    public Vector2D getPosition() {
+        return new Vector2D();
+    }
+
+    @Override
+    public Vector2D getSize() {
+        return new Vector2D(screenSize.width, screenSize.height);
+    }
+
+    @Override
+    public double getRotation() {
+        return 0;
+    }
+
+    @Override
+    public void draw(Graphics g, JComponent jc) {
+        final Overlay current = overlay;
+        if (current == null) return;
+        final int tileSize = windowFocus.getTileSize();
+        final int x = (int) Math.round((current.tileX - windowFocus.getX()) * tileSize);
+        final int y = (int) Math.round((current.tileY - windowFocus.getY()) * tileSize);
+        g.drawImage(current.image, x, y, current.image.getWidth() * tileSize, current.image.getHeight() * tileSize, jc);
+    }
+
+    /**
+     * The image of the reachable tiles and the tile its top left pixel covers, replaced together so that drawing never sees half of
+     * an update
+     */
+    private static class Overlay
+    {
+        private final BufferedImage image;
+        private final int tileX;
+        private final int tileY;
+
+        private Overlay(BufferedImage image, int tileX, int tileY) {
+            this.image = image;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+    }
+}
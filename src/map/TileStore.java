@@ -0,0 +1,117 @@
+package src.map;
+
+import java.util.Arrays;
+
+/**
+ * Packed storage of tile types: one byte per tile holding the tile type's ordinal, in row-major order. Compared to keeping a
+ * MapTileType reference per tile this is a fraction of the memory, and scanning rows touches consecutive bytes.
+ */
+public class TileStore {
+    private static final MapTileType[] TYPES = MapTileType.values();
+    private final int width;
+    private final int height;
+    private final byte[] tiles;
+
+    /**
+     * Creates a store where every tile is fillType
+     */
+    public TileStore(int width, int height, MapTileType fillType) {
+        this.width = width;
+        this.height = height;
+        this.tiles = new byte[width * height];
+        Arrays.fill(tiles, (byte) fillType.ordinal());
+    }
+
+    /**
+     * Creates a store which uses the given array, without copying it
+     * @param tiles tile ordinals in row-major order
+     * @throws IllegalArgumentException if the array has the wrong length or contains an ordinal that isn't a MapTileType
+     */
+    public TileStore(int width, int height, byte[] tiles) {
+        if (tiles.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " tiles, got " + tiles.length);
+        }
+        for (byte tile : tiles) {
+            if ((tile & 0xFF) >= TYPES.length) throw new IllegalArgumentException("Invalid tile ordinal " + (tile & 0xFF));
+        }
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Returns the tile type with the given ordinal, i.e the inverse of how tiles are stored
+     */
+    public static MapTileType typeOf(int ordinal) {
+        return TYPES[ordinal];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public MapTileType get(int x, int y) {
+        return TYPES[tiles[y * width + x]];
+    }
+
+    /**
+     * Returns the ordinal of the type of a tile, avoids the table lookup of get when comparing many tiles
+     */
+    public int getOrdinal(int x, int y) {
+        return tiles[y * width + x];
+    }
+
+    public void set(int x, int y, MapTileType type) {
+        tiles[y * width + x] = (byte) type.ordinal();
+    }
+
+    /**
+     * Sets a rectangular area to one type
+     */
+    public void fill(int x, int y, int areaWidth, int areaHeight, MapTileType type) {
+        for (int row = y; row < y + areaHeight; row++) {
+            Arrays.fill(tiles, row * width + x, row * width + x + areaWidth, (byte) type.ordinal());
+        }
+    }
+
+    /**
+     * Copies the ordinals of part of a row into an array
+     * @param x first tile of the row to copy
+     * @param y row to copy from
+     * @param length number of tiles to copy
+     */
+    public void getRow(int x, int y, byte[] destination, int offset, int length) {
+        System.arraycopy(tiles, y * width + x, destination, offset, length);
+    }
+
+    /**
+     * Copies the ordinals of all tiles, in row-major order, into an array
+     */
+    public void getAll(byte[] destination, int offset) {
+        System.arraycopy(tiles, 0, destination, offset, tiles.length);
+    }
+
+    /**
+     * Copies ordinals from an array into part of a row. The ordinals are not validated.
+     * @param x first tile of the row to copy to
+     * @param y row to copy to
+     * @param length number of tiles to copy
+     */
+    public void setRow(int x, int y, byte[] source, int offset, int length) {
+        System.arraycopy(source, offset, tiles, y * width + x, length);
+    }
+
+    /**
+     * Copies a rectangular area of this store into another store
+     */
+    public void copyTo(int x, int y, TileStore destination, int destinationX, int destinationY, int areaWidth, int areaHeight) {
+        for (int row = 0; row < areaHeight; row++) {
+            System.arraycopy(tiles, (y + row) * width + x,
+                    destination.tiles, (destinationY + row) * destination.width + destinationX, areaWidth);
+        }
+    }
+}
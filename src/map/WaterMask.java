@@ -0,0 +1,57 @@
+package src.map;
+
+import java.io.IOException;
+
+/**
+ * Which tiles of the map are water, one bit per tile in row-major order. The mask is built once from the map source, reading every
+ * chunk without keeping it, so that where units can walk never depends on which chunks the ChunkCache has loaded around the map focus.
+ */
+public class WaterMask {
+    private final int width;
+    private final int height;
+    private final long[] bits;
+
+    /**
+     * Reads every chunk of a map source once
+     */
+    public WaterMask(MapSource source) throws IOException {
+        width = source.getWidth();
+        height = source.getHeight();
+        bits = new long[(int) (((long) width * height + 63) / 64)];
+        final byte water = (byte) MapTileType.WATER.ordinal();
+        final byte[] row = new byte[MapChunk.CHUNK_SIZE];
+        for (int chunkY = 0; chunkY < MapChunk.chunksFor(height); chunkY++) {
+            for (int chunkX = 0; chunkX < MapChunk.chunksFor(width); chunkX++) {
+                final MapChunk chunk = source.loadChunk(chunkX, chunkY);
+                final int chunkWidth = Math.min(MapChunk.CHUNK_SIZE, width - chunkX * MapChunk.CHUNK_SIZE);
+                final int chunkHeight = Math.min(MapChunk.CHUNK_SIZE, height - chunkY * MapChunk.CHUNK_SIZE);
+                for (int localY = 0; localY < chunkHeight; localY++) {
+                    chunk.getTiles().getRow(0, localY, row, 0, chunkWidth);
+                    final int offset = (chunkY * MapChunk.CHUNK_SIZE + localY) * width + chunkX * MapChunk.CHUNK_SIZE;
+                    for (int localX = 0; localX < chunkWidth; localX++) {
+                        if (row[localX] == water) bits[(offset + localX) >>> 6] |= 1L << (offset + localX);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether a tile is water, tiles outside of the map are
+     */
+    public boolean isWater(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return true;
+        final int tile = y * width + x;
+        return (bits[tile >>> 6] & 1L << tile) != 0;
+    }
+
+    /**
+     * Writes 1 for every water tile and 0 for every other tile to blocked, in row-major order
+     * @param blocked array of width * height tiles
+     */
+    public void copyTo(byte[] blocked) {
+        for (int tile = 0; tile < width * height; tile++) {
+            blocked[tile] = (byte) (bits[tile >>> 6] >>> tile & 1);
+        }
+    }
+}
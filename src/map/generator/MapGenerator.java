@@ -0,0 +1,288 @@
+package src.map.generator;
+
+import src.map.MapChunk;
+import src.map.MapEntityRecord;
+import src.map.MapTileType;
+import src.map.MemoryMapSource;
+import src.map.TileStore;
+import src.player.Resource;
+import src.sprites.entities.livingEntities.Character;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * Generates a map from a seed. The terrain comes from fractal noise which fades into water towards the edges of the map, and is
+ * generated chunk by chunk in parallel on a fork-join pool. Then the player starts are cleared, connected with roads so that every
+ * player can reach every other player, and rocks and collectables are scattered on the remaining land.
+ */
+public class MapGenerator {
+    private static final Logger LOGGER = Logger.getLogger("");
+    private static final double WATER_LEVEL = 0.42;
+    private static final int NOISE_OCTAVES = 5;
+    private static final double NOISE_FREQUENCY = 1.0 / 48;
+    private static final int START_CLEARING_RADIUS = 3;
+    private static final int TILES_PER_ROCK = 120;
+    private static final int TILES_PER_COLLECTABLE = 500;
+    private static final int COLLECTABLE_WIDTH = 3;
+    private static final int COLLECTABLE_HEIGHT = 2;
+    /** Chunks per fork-join task before it stops splitting */
+    private static final int CHUNKS_PER_TASK = 8;
+
+    private final int width;
+    private final int height;
+    private final int teamCount;
+    private final long seed;
+    private final ValueNoise noise;
+    private final TileStore tiles;
+    /** Tiles that can't be covered by entities, i.e roads, player starts and tiles already covered by an entity */
+    private final boolean[] reserved;
+    /** Tiles that are covered by an entity */
+    private final boolean[] occupied;
+    private final long[] chunkGenerationNanos;
+
+    /**
+     * @param width width of the map, measured in tiles
+     * @param height height of the map, measured in tiles
+     * @param teamCount number of players, each gets a starting hero
+     * @param seed the same seed always generates the same map
+     */
+    public MapGenerator(int width, int height, int teamCount, long seed) {
+        this.width = width;
+        this.height = height;
+        this.teamCount = teamCount;
+        this.seed = seed;
+        this.noise = new ValueNoise(seed, NOISE_OCTAVES, NOISE_FREQUENCY);
+        this.tiles = new TileStore(width, height, MapTileType.WATER);
+        this.reserved = new boolean[width * height];
+        this.occupied = new boolean[width * height];
+        this.chunkGenerationNanos = new long[MapChunk.chunksFor(width) * MapChunk.chunksFor(height)];
+    }
+
+    /**
+     * Generates the map and logs how long it took
+     */
+    public MemoryMapSource generate() {
+        final long start = System.nanoTime();
+        ForkJoinPool.commonPool().invoke(new TerrainTask(0, chunkGenerationNanos.length));
+        final long terrainEnd = System.nanoTime();
+
+        Random random = new Random(seed);
+        List<MapEntityRecord> entities = new ArrayList<>();
+        List<int[]> starts = placeStarts(entities);
+        for (int i = 1; i < starts.size(); i++) {
+            carveRoad(starts.get(i - 1), starts.get(i));
+        }
+        placeObstacles(random, entities);
+        placeCollectables(random, entities);
+        checkReachable(starts);
+
+        MemoryMapSource source = new MemoryMapSource(width, height, teamCount, entities);
+        for (int chunkY = 0; chunkY < MapChunk.chunksFor(height); chunkY++) {
+            for (int chunkX = 0; chunkX < MapChunk.chunksFor(width); chunkX++) {
+                source.setChunk(MapChunk.slice(chunkX, chunkY, tiles));
+            }
+        }
+        final long end = System.nanoTime();
+
+        LongSummaryStatistics chunkStatistics = Arrays.stream(chunkGenerationNanos).summaryStatistics();
+        LOGGER.info(String.format("Generated %dx%d map with seed %d in %.1f ms (terrain %.1f ms on %d threads). "
+                        + "Per chunk: mean %.3f ms, max %.3f ms over %d chunks",
+                width, height, seed, (end - start) / 1.0e6, (terrainEnd - start) / 1.0e6, ForkJoinPool.commonPool().getParallelism(),
+                chunkStatistics.getAverage() / 1.0e6, chunkStatistics.getMax() / 1.0e6, chunkStatistics.getCount()));
+        return source;
+    }
+
+    /**
+     * Returns how long each chunk's terrain took to generate, in nanoseconds, indexed by chunk in row-major order
+     */
+    public long[] getChunkGenerationNanos() {
+        return chunkGenerationNanos.clone();
+    }
+
+    /**
+     * Generates the terrain of one chunk. Each chunk only writes to its own tiles, so chunks can be generated in parallel.
+     */
+    private void generateChunk(int chunkIndex) {
+        final long start = System.nanoTime();
+        int chunksWide = MapChunk.chunksFor(width);
+        int firstX = (chunkIndex % chunksWide) * MapChunk.CHUNK_SIZE;
+        int firstY = (chunkIndex / chunksWide) * MapChunk.CHUNK_SIZE;
+        for (int y = firstY; y < Math.min(firstY + MapChunk.CHUNK_SIZE, height); y++) {
+            for (int x = firstX; x < Math.min(firstX + MapChunk.CHUNK_SIZE, width); x++) {
+                tiles.set(x, y, getElevation(x, y) < WATER_LEVEL ? MapTileType.WATER : MapTileType.GRASS);
+            }
+        }
+        chunkGenerationNanos[chunkIndex] = System.nanoTime() - start;
+    }
+
+    /**
+     * Noise which is lowered close to the edges of the map, so that the map is surrounded by water
+     */
+    private double getElevation(int x, int y) {
+        double edgeX = Math.min(x, width - 1 - x) / (width * 0.5);
+        double edgeY = Math.min(y, height - 1 - y) / (height * 0.5);
+        double edgeFalloff = Math.min(1, Math.min(edgeX, edgeY) * 8);
+        return noise.get(x, y) * edgeFalloff;
+    }
+
+    /**
+     * Places the players evenly on a circle around the centre of the map and clears the land around them
+     * @return the start positions, as {x, y}
+     */
+    private List<int[]> placeStarts(List<MapEntityRecord> entities) {
+        List<int[]> starts = new ArrayList<>();
+        Character.CharacterEnum[] characters = Character.CharacterEnum.values();
+        for (int team = 0; team < teamCount; team++) {
+            double angle = Math.PI * 2 * team / teamCount;
+            int x = (int) (width * (0.5 + 0.3 * Math.cos(angle)));
+            int y = (int) (height * (0.5 + 0.3 * Math.sin(angle)));
+            for (int clearY = y - START_CLEARING_RADIUS; clearY <= y + START_CLEARING_RADIUS; clearY++) {
+                for (int clearX = x - START_CLEARING_RADIUS; clearX <= x + START_CLEARING_RADIUS; clearX++) {
+                    if (isInside(clearX, clearY)) {
+                        tiles.set(clearX, clearY, MapTileType.GRASS);
+                        reserved[clearY * width + clearX] = true;
+                    }
+                }
+            }
+            starts.add(new int[]{x, y});
+            entities.add(MapEntityRecord.hero(x, y, team, characters[team % characters.length]));
+        }
+        return starts;
+    }
+
+    /**
+     * Lays a road along a straight line between two positions, replacing any water on the way
+     */
+    private void carveRoad(int[] from, int[] to) {
+        int x = from[0];
+        int y = from[1];
+        int dx = Math.abs(to[0] - x);
+        int dy = -Math.abs(to[1] - y);
+        int stepX = x < to[0] ? 1 : -1;
+        int stepY = y < to[1] ? 1 : -1;
+        int error = dx + dy;
+        while (true) {
+            tiles.set(x, y, MapTileType.ROAD);
+            reserved[y * width + x] = true;
+            if (x == to[0] && y == to[1]) break;
+            int doubleError = 2 * error;
+            if (doubleError >= dy) {
+                error += dy;
+                x += stepX;
+            }
+            if (doubleError <= dx) {
+                error += dx;
+                y += stepY;
+            }
+        }
+    }
+
+    private void placeObstacles(Random random, List<MapEntityRecord> entities) {
+        int count = width * height / TILES_PER_ROCK;
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (tryReserve(x, y, 1, 1)) entities.add(MapEntityRecord.obstacle(x, y));
+        }
+    }
+
+    private void placeCollectables(Random random, List<MapEntityRecord> entities) {
+        Resource[] resources = Resource.values();
+        int count = width * height / TILES_PER_COLLECTABLE;
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (tryReserve(x, y, COLLECTABLE_WIDTH, COLLECTABLE_HEIGHT)) {
+                entities.add(MapEntityRecord.collectable(x, y, resources[random.nextInt(resources.length)]));
+            }
+        }
+    }
+
+    /**
+     * Reserves an area for an entity if all of it is free land
+     * @return true if the area was reserved
+     */
+    private boolean tryReserve(int x, int y, int areaWidth, int areaHeight) {
+        for (int iterY = y; iterY < y + areaHeight; iterY++) {
+            for (int iterX = x; iterX < x + areaWidth; iterX++) {
+                if (!isInside(iterX, iterY) || reserved[iterY * width + iterX] || tiles.get(iterX, iterY) == MapTileType.WATER) {
+                    return false;
+                }
+            }
+        }
+        for (int iterY = y; iterY < y + areaHeight; iterY++) {
+            Arrays.fill(reserved, iterY * width + x, iterY * width + x + areaWidth, true);
+            Arrays.fill(occupied, iterY * width + x, iterY * width + x + areaWidth, true);
+        }
+        return true;
+    }
+
+    /**
+     * Checks with a flood fill from the first start that every other start can be reached over land that isn't covered by an entity.
+     * The roads guarantee this, so failing is a bug in the generator.
+     */
+    private void checkReachable(List<int[]> starts) {
+        boolean[] visited = new boolean[width * height];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int first = starts.get(0)[1] * width + starts.get(0)[0];
+        visited[first] = true;
+        queue.add(first);
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            int x = current % width;
+            int y = current / width;
+            for (int neighbourY = y - 1; neighbourY <= y + 1; neighbourY++) {
+                for (int neighbourX = x - 1; neighbourX <= x + 1; neighbourX++) {
+                    if (!isInside(neighbourX, neighbourY)) continue;
+                    int neighbour = neighbourY * width + neighbourX;
+                    if (visited[neighbour] || tiles.get(neighbourX, neighbourY) == MapTileType.WATER || occupied[neighbour]) continue;
+                    visited[neighbour] = true;
+                    queue.add(neighbour);
+                }
+            }
+        }
+        for (int[] start : starts) {
+            if (!visited[start[1] * width + start[0]]) {
+                throw new IllegalStateException("Start " + start[0] + "," + start[1] + " is not reachable in map with seed " + seed);
+            }
+        }
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Generates the terrain of a range of chunks, splitting the range in two until it is small enough
+     */
+    private class TerrainTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int firstChunk;
+        private final int endChunk;
+
+        private TerrainTask(int firstChunk, int endChunk) {
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - firstChunk <= CHUNKS_PER_TASK) {
+                for (int chunkIndex = firstChunk; chunkIndex < endChunk; chunkIndex++) {
+                    generateChunk(chunkIndex);
+                }
+            } else {
+                int middle = (firstChunk + endChunk) >>> 1;
+                invokeAll(new TerrainTask(firstChunk, middle), new TerrainTask(middle, endChunk));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package src.map.generator;
+
+/**
+ * Seeded fractal value noise. The value at a position only depends on the seed and the position, so any part of the noise can be
+ * computed independently, and from several threads at once.
+ */
+public class ValueNoise {
+    private final long seed;
+    private final int octaves;
+    private final double baseFrequency;
+
+    /**
+     * @param seed seed of the noise
+     * @param octaves number of layers of noise, each with double the frequency and half the amplitude of the previous one
+     * @param baseFrequency frequency of the first octave, i.e 1 / the size of its features measured in tiles
+     */
+    public ValueNoise(long seed, int octaves, double baseFrequency) {
+        this.seed = seed;
+        this.octaves = octaves;
+        this.baseFrequency = baseFrequency;
+    }
+
+    /**
+     * Returns the noise at a position
+     * @return a value between 0 and 1
+     */
+    public double get(double x, double y) {
+        double value = 0;
+        double amplitude = 1;
+        double totalAmplitude = 0;
+        double frequency = baseFrequency;
+        for (int octave = 0; octave < octaves; octave++) {
+            value += amplitude * getOctave(x * frequency, y * frequency, octave);
+            totalAmplitude += amplitude;
+            amplitude *= 0.5;
+            frequency *= 2;
+        }
+        return value / totalAmplitude;
+    }
+
+    /**
+     * Interpolates between the random values at the four corners of the lattice cell that the position is in
+     */
+    private double getOctave(double x, double y, int octave) {
+        int cellX = (int) Math.floor(x);
+        int cellY = (int) Math.floor(y);
+        double fractionX = smooth(x - cellX);
+        double fractionY = smooth(y - cellY);
+
+        double top = lerp(latticeValue(cellX, cellY, octave), latticeValue(cellX + 1, cellY, octave), fractionX);
+        double bottom = lerp(latticeValue(cellX, cellY + 1, octave), latticeValue(cellX + 1, cellY + 1, octave), fractionX);
+        return lerp(top, bottom, fractionY);
+    }
+
+    /**
+     * Returns a pseudo random value between 0 and 1 for a lattice point
+     */
+    private double latticeValue(int x, int y, int octave) {
+        long hash = seed;
+        hash ^= x * 0x9E3779B97F4A7C15L;
+        hash ^= y * 0xC2B2AE3D27D4EB4FL;
+        hash ^= octave * 0x165667B19E3779F9L;
+        // SplitMix64 finalizer
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static double smooth(double t) {
+        return t * t * (3 - 2 * t);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
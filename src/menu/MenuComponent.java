@@ -2,11 +2,15 @@ package src.menu;
 
 import src.Game;
 import src.sprites.Sprite;
+import src.sprites.SpriteTexture;
+import src.sprites.StaticLayer;
+import src.tools.Vector2D;
 import src.tools.image.ImageLoader;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 
@@ -16,12 +20,12 @@ import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 public class MenuComponent extends JComponent
 {
     private final Game game;
-    private final BufferedImage menuBackground;
+    private final StaticLayer menuBackground;
 
     public MenuComponent(Game game){
         this.game = game;
 
-        menuBackground = new MenuBackground(getPreferredSize()).getMenuBackground();
+        menuBackground = new StaticLayer(size -> List.of(new SpriteTexture(new Vector2D(), 0, new MenuBackground(size).getMenuBackground())));
 
         GridBagLayout grid = new GridBagLayout();
         this.setLayout(grid);
@@ -59,7 +63,7 @@ public class MenuComponent extends JComponent
 
     @Override
     protected void paintComponent(Graphics g){
-        g.drawImage(menuBackground, 0, 0, null);
+        menuBackground.draw(g, this);
         super.paintComponent(g);
     }
 }
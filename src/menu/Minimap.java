@@ -2,7 +2,10 @@ package src.menu;
 
 import src.Game;
 import src.map.GameMap;
+import src.map.InfluenceMap;
+import src.player.PlayerTeam;
 import src.tools.Vector2D;
+import src.tools.command.Command;
 import src.tools.image.BufferedImageResize;
 
 import javax.swing.*;
@@ -11,22 +14,35 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 
 public class Minimap extends JLabel {
     private final GameMap gameMap;
-    private final BufferedImage minimapImage;
+    private final int minimapSize;
+    private BufferedImage minimapImage;
+    private int backgroundGeneration;
+    private final BufferedImage influenceImage;
+    private final Rectangle changedInfluence = new Rectangle();
+    private boolean influenceDrawn = false;
+    // Influence that is drawn with MAX_INFLUENCE_ALPHA: the strongest on the map when the whole overlay was last drawn, or stronger
+    private float influenceScale = 0;
 
     private final static int MINIMAP_OFFSET = 40;
+    /** Opacity of the influence overlay where a team's influence is at least influenceScale */
+    private final static int MAX_INFLUENCE_ALPHA = 120;
     /**
      * The minimap of the game, located on the gameMenu component
      * @param game The main game object
      */
     public Minimap(Game game){
-        int minimapSize = game.getMenuScreenDimension().width - MINIMAP_OFFSET * 2;
+        minimapSize = game.getMenuScreenDimension().width - MINIMAP_OFFSET * 2;
 
         this.gameMap = game.getGameMap();
-        minimapImage = BufferedImageResize.resize(gameMap.getBackground(), minimapSize, minimapSize);
+        backgroundGeneration = gameMap.getBackgroundGeneration();
+        minimapImage = BufferedImageResize.resize(gameMap.createOverview(), minimapSize, minimapSize);
+        Dimension mapSize = gameMap.getMapSize();
+        influenceImage = new BufferedImage(mapSize.width, mapSize.height, BufferedImage.TYPE_INT_ARGB);
 
         this.addMouseListener(new MouseAdapter() {
             @Override
@@ -38,7 +54,7 @@ public class Minimap extends JLabel {
                 double mapFocusX = percentX * gameMapDim.width;
                 double mapFocusY = percentY * gameMapDim.height;
 
-                gameMap.setMapFocusCentre(new Vector2D(mapFocusX, mapFocusY));
+                game.queueCommand(Command.mapFocus(new Vector2D(mapFocusX, mapFocusY)));
             }
         });
     }
@@ -46,9 +62,65 @@ public class Minimap extends JLabel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        if (backgroundGeneration != gameMap.getBackgroundGeneration()) {
+            backgroundGeneration = gameMap.getBackgroundGeneration();
+            minimapImage = BufferedImageResize.resize(gameMap.createOverview(), minimapSize, minimapSize);
+            influenceDrawn = false;
+        }
         Dimension labelSize = this.getSize();
         int posX = (int)((labelSize.width - minimapImage.getWidth()) * 0.5);
         int posY = (int)((labelSize.height - minimapImage.getHeight()) * 0.5);
         g.drawImage(minimapImage, posX, posY, null);
+
+        InfluenceMap influence = gameMap.getInfluenceMap();
+        boolean influenceChanged = influence.takeChangedArea(changedInfluence);
+        if (!influenceDrawn) {
+            influenceDrawn = true;
+            influenceScale = 0;
+            updateInfluenceImage(influence, 0, 0, influence.getWidth(), influence.getHeight());
+        } else if (influenceChanged) {
+            updateInfluenceImage(influence, changedInfluence.x, changedInfluence.y, changedInfluence.width, changedInfluence.height);
+        }
+        g.drawImage(influenceImage, posX, posY, minimapImage.getWidth(), minimapImage.getHeight(), null);
+    }
+
+    /**
+     * Tints the tiles of an area with the colour of the team that has the most influence on each, more opaque the stronger the
+     * influence. Only the area that a unit's move changed is drawn again, unless the influence there has become the strongest on the
+     * map, which changes the opacity of every tile.
+     */
+    private void updateInfluenceImage(InfluenceMap influence, int minX, int minY, int width, int height) {
+        List<PlayerTeam> teams = influence.getTeams();
+        float[] strongest = new float[width * height];
+        int[] strongestTeam = new int[width * height];
+        float maxInfluence = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                for (int team = 0; team < teams.size(); team++) {
+                    float value = influence.getInfluence(team, minX + x, minY + y);
+                    if (value > strongest[i]) {
+                        strongest[i] = value;
+                        strongestTeam[i] = team;
+                    }
+                }
+                maxInfluence = Math.max(maxInfluence, strongest[i]);
+            }
+        }
+        if (maxInfluence > influenceScale) {
+            influenceScale = maxInfluence;
+            if (width < influence.getWidth() || height < influence.getHeight()) {
+                updateInfluenceImage(influence, 0, 0, influence.getWidth(), influence.getHeight());
+                return;
+            }
+        }
+
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            if (strongest[i] <= 0) continue;
+            int alpha = (int) (MAX_INFLUENCE_ALPHA * Math.min(1, strongest[i] / influenceScale));
+            pixels[i] = alpha << 24 | teams.get(strongestTeam[i]).getColor().getRGB() & 0xFFFFFF;
+        }
+        influenceImage.setRGB(minX, minY, width, height, pixels, 0, width);
     }
 }
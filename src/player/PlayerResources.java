@@ -1,9 +1,14 @@
 package src.player;
 
+import src.tools.save.SaveReader;
+import src.tools.save.SaveWriter;
+
+import java.io.IOException;
 import java.util.EnumMap;
 
 public class PlayerResources {
     final private EnumMap<Resource, Integer> resources;
+    private int generation = 0;
 
     public PlayerResources(){
         resources = new EnumMap<>(Resource.class);
@@ -15,9 +20,40 @@ public class PlayerResources {
     public void addResource(Resource resource, int amount){
         assert amount >= 0;
         resources.replace(resource, resources.get(resource) + amount);
+        generation++;
     }
 
     public int getValue(Resource r){
         return resources.get(r);
     }
+
+    public void save(SaveWriter out) throws IOException {
+        for (Resource r : Resource.values()){
+            out.writeInt(resources.get(r));
+        }
+    }
+
+    public void load(SaveReader in) throws IOException {
+        for (Resource r : Resource.values()){
+            int amount = in.readInt();
+            if (amount < 0) throw new IOException("Corrupt save, " + amount + " " + r);
+            resources.replace(r, amount);
+        }
+        generation++;
+    }
+
+    /**
+     * Replaces the amount of every resource with the amount in other
+     */
+    public void copyFrom(PlayerResources other){
+        resources.putAll(other.resources);
+        generation++;
+    }
+
+    /**
+     * Returns a number which changes every time a resource value changes
+     */
+    public int getGeneration(){
+        return generation;
+    }
 }
@@ -4,12 +4,18 @@ import src.sprites.entities.livingEntities.MapLivingEntity;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * A player of the map. Besides its resources the team keeps an index of its units on the map, maintained by the units as they enter
+ * or leave the map or change team, so that work done for one team only looks at that team's units.
+ */
 public class PlayerTeam {
     private final PlayerResources playerResources;
     private final PlayerTeamColor teamColor;
     private final List<MapLivingEntity> playerMapLivingEntities;
+    private boolean computerControlled = false;
 
     public PlayerTeam(PlayerTeamColor teamColor){
         this.playerResources = new PlayerResources();
@@ -36,7 +42,42 @@ public class PlayerTeam {
         return teamColor;
     }
 
+    /**
+     * @return true if the team's turns are played by the computer
+     */
+    public boolean isComputerControlled() {
+        return computerControlled;
+    }
+
+    public void setComputerControlled(boolean computerControlled) {
+        this.computerControlled = computerControlled;
+    }
+
     public PlayerResources getPlayerResources() {
         return playerResources;
     }
+
+    /**
+     * @return the team's units on the map, in the order they entered it
+     */
+    public List<MapLivingEntity> getMapLivingEntities() {
+        return Collections.unmodifiableList(playerMapLivingEntities);
+    }
+
+    public void addMapLivingEntity(MapLivingEntity entity) {
+        playerMapLivingEntities.add(entity);
+    }
+
+    public void removeMapLivingEntity(MapLivingEntity entity) {
+        playerMapLivingEntities.remove(entity);
+    }
+
+    /**
+     * Does the work of the end of the team's turn for all of its units at once
+     */
+    public void endTurn() {
+        for (MapLivingEntity entity : playerMapLivingEntities) {
+            entity.resetMovement();
+        }
+    }
 }
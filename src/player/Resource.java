@@ -1,4 +1,17 @@
 package src.player;
 
-public enum Resource {GOLD, WOOD, ORE, GEM, MERCURY, CRYSTAL, SULPHUR
+public enum Resource {GOLD(1), WOOD(2), ORE(2), GEM(4), MERCURY(4), CRYSTAL(4), SULPHUR(4);
+
+    private final int value;
+
+    Resource(int value) {
+        this.value = value;
+    }
+
+    /**
+     * @return rough worth of one of the resource, compared to one gold
+     */
+    public int getValue() {
+        return value;
+    }
 }
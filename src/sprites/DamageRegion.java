@@ -0,0 +1,80 @@
+package src.sprites;
+
+import java.awt.*;
+
+/**
+ * Area of the screen that needs to be repainted, kept as the union of the damaged rectangles. Swing's repaint manager unions the
+ * repaint requests of a component anyway, so keeping the rectangles apart wouldn't save any drawing.
+ */
+public class DamageRegion
+{
+    private final Rectangle bounds = new Rectangle();
+    private final Rectangle spriteBounds = new Rectangle();
+    private boolean empty = true;
+    private boolean full = false;
+
+    /**
+     * Marks a rectangle as damaged, measured in pixels
+     */
+    public void add(int x, int y, int width, int height) {
+	if (full || width <= 0 || height <= 0) return;
+	if (empty) {
+	    bounds.setBounds(x, y, width, height);
+	    empty = false;
+	} else {
+	    final int minX = Math.min(bounds.x, x);
+	    final int minY = Math.min(bounds.y, y);
+	    final int maxX = Math.max(bounds.x + bounds.width, x + width);
+	    final int maxY = Math.max(bounds.y + bounds.height, y + height);
+	    bounds.setBounds(minX, minY, maxX - minX, maxY - minY);
+	}
+    }
+
+    public void add(Rectangle rectangle) {
+	add(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+    }
+
+    /**
+     * Marks the area that a sprite is drawn on as damaged, or everything if the sprite doesn't know its area
+     */
+    public void add(Sprite sprite) {
+	if (full) return;
+	if (sprite.getScreenBounds(spriteBounds)) add(spriteBounds);
+	else addAll();
+    }
+
+    /**
+     * Adds all the damage of another region
+     */
+    public void add(DamageRegion other) {
+	if (other.full) addAll();
+	else if (!other.empty) add(other.bounds);
+    }
+
+    /**
+     * Marks the whole screen as damaged
+     */
+    public void addAll() {
+	full = true;
+    }
+
+    public boolean isEmpty() {
+	return empty && !full;
+    }
+
+    public boolean isFull() {
+	return full;
+    }
+
+    /**
+     * Returns the union of the damaged rectangles, not meaningful if the region is empty or full
+     */
+    public Rectangle getBounds() {
+	return new Rectangle(bounds);
+    }
+
+    public void clear() {
+	empty = true;
+	full = false;
+    }
+}
@@ -0,0 +1,400 @@
+package src.sprites;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The sprites of a screen in the order they are drawn. Sprites are drawn by increasing depth, and sprites in a y-sorted depth by how
+ * far down the screen they reach, so that a unit standing in front of another one is drawn over it. In a depth that isn't y-sorted the
+ * sprites are grouped by their batch key, groups in the order their first sprite was added. Sprites that compare equal keep the order
+ * they were added in.
+ * <p>
+ * The queue is kept sorted between frames, and re-sorted with an insertion sort after the sprites have moved. That is linear when
+ * nothing has moved past anything else, which is almost every frame. Only the sort keys of sprites that can move are read again. Adding a sprite appends it and removing one through its handle
+ * only clears its place, both in constant time. The next sort closes the gaps, sorts the sprites added since the last sort on their own
+ * and merges them into the rest, so that spawning many sprites at once doesn't make the insertion sort quadratic.
+ * <p>
+ * The queue is changed and sorted on the game thread but drawn on the paint thread, so the paint thread never reads the arrays above.
+ * Every sort that changes the order publishes an immutable copy of it, and the sprites are read from the latest copy.
+ */
+public class RenderQueue
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private Handle[] handles = new Handle[INITIAL_CAPACITY];
+    private int[] depths = new int[INITIAL_CAPACITY];
+    private double[] sortKeys = new double[INITIAL_CAPACITY];
+    private boolean[] ySorted = new boolean[INITIAL_CAPACITY];
+    private boolean[] refreshKey = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+    private int removed = 0;
+    private int sortedSize = 0;
+    private boolean sorted = true;
+    // Scratch space for merging the sprites added since the last sort into the sorted ones
+    private Handle[] mergedHandles = new Handle[INITIAL_CAPACITY];
+    private int[] mergedDepths = new int[INITIAL_CAPACITY];
+    private double[] mergedSortKeys = new double[INITIAL_CAPACITY];
+    private boolean[] mergedYSorted = new boolean[INITIAL_CAPACITY];
+    private boolean[] mergedRefreshKey = new boolean[INITIAL_CAPACITY];
+    private int[] addedOrder = new int[INITIAL_CAPACITY];
+    private int[] addedScratch = new int[INITIAL_CAPACITY];
+    private final Set<Integer> ySortedDepths = new HashSet<>();
+    private final Map<Object, Group> groups = new HashMap<>();
+    private long nextGroupOrder = 0;
+    private volatile DrawOrder drawOrder = new DrawOrder(new Sprite[0], new int[0]);
+
+    /**
+     * Sets whether the sprites in a depth are sorted by how far down the screen they reach, or grouped by batch key
+     */
+    public void setYSorted(int depth, boolean ySorted) {
+	if (ySorted) ySortedDepths.add(depth);
+	else ySortedDepths.remove(depth);
+
+	for (int i = 0; i < size; i++) {
+	    if (handles[i] != null && depths[i] == depth && this.ySorted[i] != ySorted) {
+		this.ySorted[i] = ySorted;
+		refreshKey[i] = ySorted && !handles[i].sprite.isSortYFixed();
+		if (ySorted) {
+		    releaseGroup(handles[i]);
+		    sortKeys[i] = handles[i].sprite.getSortY();
+		} else {
+		    sortKeys[i] = joinGroup(handles[i]);
+		}
+	    }
+	}
+	sorted = false;
+	sort();
+    }
+
+    /**
+     * Adds a sprite, which is put in its place by the next sort
+     *
+     * @return handle which the sprite is removed with
+     */
+    public Handle add(Sprite sprite, int depth) {
+	if (size == handles.length) grow();
+
+	final Handle handle = new Handle(sprite);
+	final boolean ySorted = ySortedDepths.contains(depth);
+	handles[size] = handle;
+	depths[size] = depth;
+	sortKeys[size] = ySorted ? sprite.getSortY() : joinGroup(handle);
+	this.ySorted[size] = ySorted;
+	refreshKey[size] = ySorted && !sprite.isSortYFixed();
+	handle.index = size++;
+	sorted = false;
+	return handle;
+    }
+
+    /**
+     * Removes a sprite, the gap it leaves is closed by the next sort
+     *
+     * @return false if the sprite had already been removed
+     */
+    public boolean remove(Handle handle) {
+	if (handle.index < 0) return false;
+	handles[handle.index] = null;
+	handle.index = -1;
+	releaseGroup(handle);
+	removed++;
+	sorted = false;
+	return true;
+    }
+
+    /**
+     * @return the sort key shared by the sprites with the same batch key as the handle's sprite, or a new one
+     */
+    private double joinGroup(Handle handle) {
+	final Object batchKey = handle.sprite.getBatchKey();
+	if (batchKey == null) return nextGroupOrder++;
+
+	Group group = groups.get(batchKey);
+	if (group == null) {
+	    group = new Group(nextGroupOrder++);
+	    groups.put(batchKey, group);
+	}
+	group.members++;
+	handle.group = group;
+	handle.batchKey = batchKey;
+	return group.order;
+    }
+
+    private void releaseGroup(Handle handle) {
+	if (handle.group == null) return;
+	if (--handle.group.members == 0) groups.remove(handle.batchKey);
+	handle.group = null;
+	handle.batchKey = null;
+    }
+
+    /**
+     * Reads the positions of the sprites in y-sorted depths again and restores the drawing order
+     */
+    public void sort() {
+	final boolean compacted = removed > 0;
+	if (compacted) compact();
+
+	boolean anyRefreshed = false;
+	for (int i = 0; i < size; i++) {
+	    if (refreshKey[i]) {
+		sortKeys[i] = handles[i].sprite.getSortY();
+		anyRefreshed = true;
+	    }
+	}
+	if (sorted && !anyRefreshed) return;
+
+	boolean orderChanged = insertionSort(sortedSize) || compacted;
+	if (sortedSize < size) {
+	    mergeAdded();
+	    orderChanged = true;
+	}
+	sortedSize = size;
+	sorted = true;
+	if (orderChanged) publishDrawOrder();
+    }
+
+    /**
+     * Makes a copy of the drawing order for the paint thread to read
+     */
+    private void publishDrawOrder() {
+	final Sprite[] sprites = new Sprite[size];
+	for (int i = 0; i < size; i++) {
+	    sprites[i] = handles[i].sprite;
+	}
+	drawOrder = new DrawOrder(sprites, Arrays.copyOf(depths, size));
+    }
+
+    /**
+     * Sorts the first end sprites, which is linear if they are almost in order
+     *
+     * @return true if any sprite was moved
+     */
+    private boolean insertionSort(int end) {
+	boolean moved = false;
+	for (int i = 1; i < end; i++) {
+	    final int depth = depths[i];
+	    final double sortKey = sortKeys[i];
+	    if (compare(depths[i - 1], sortKeys[i - 1], depth, sortKey) <= 0) continue;
+
+	    final Handle handle = handles[i];
+	    final boolean handleYSorted = ySorted[i];
+	    final boolean handleRefreshKey = refreshKey[i];
+	    int j = i;
+	    do {
+		move(j - 1, j);
+		j--;
+	    } while (j > 0 && compare(depths[j - 1], sortKeys[j - 1], depth, sortKey) > 0);
+	    handles[j] = handle;
+	    depths[j] = depth;
+	    sortKeys[j] = sortKey;
+	    ySorted[j] = handleYSorted;
+	    refreshKey[j] = handleRefreshKey;
+	    handle.index = j;
+	    moved = true;
+	}
+	return moved;
+    }
+
+    /**
+     * Sorts the sprites added since the last sort and merges them into the sorted ones, with the sorted ones first when they compare
+     * equal
+     */
+    private void mergeAdded() {
+	final int added = size - sortedSize;
+	if (addedOrder.length < added) {
+	    addedOrder = new int[handles.length];
+	    addedScratch = new int[handles.length];
+	}
+	for (int i = 0; i < added; i++) {
+	    addedOrder[i] = sortedSize + i;
+	}
+	mergeSort(addedOrder, addedScratch, 0, added);
+
+	if (mergedHandles.length < handles.length) {
+	    mergedHandles = new Handle[handles.length];
+	    mergedDepths = new int[handles.length];
+	    mergedSortKeys = new double[handles.length];
+	    mergedYSorted = new boolean[handles.length];
+	    mergedRefreshKey = new boolean[handles.length];
+	}
+	int sortedIndex = 0;
+	int addedIndex = 0;
+	for (int to = 0; to < size; to++) {
+	    final int from;
+	    if (addedIndex == added || (sortedIndex < sortedSize
+		    && compare(depths[sortedIndex], sortKeys[sortedIndex], depths[addedOrder[addedIndex]], sortKeys[addedOrder[addedIndex]]) <= 0)) {
+		from = sortedIndex++;
+	    } else {
+		from = addedOrder[addedIndex++];
+	    }
+	    mergedHandles[to] = handles[from];
+	    mergedDepths[to] = depths[from];
+	    mergedSortKeys[to] = sortKeys[from];
+	    mergedYSorted[to] = ySorted[from];
+	    mergedRefreshKey[to] = refreshKey[from];
+	    mergedHandles[to].index = to;
+	}
+
+	final Handle[] swapHandles = handles;
+	handles = mergedHandles;
+	mergedHandles = swapHandles;
+	final int[] swapDepths = depths;
+	depths = mergedDepths;
+	mergedDepths = swapDepths;
+	final double[] swapSortKeys = sortKeys;
+	sortKeys = mergedSortKeys;
+	mergedSortKeys = swapSortKeys;
+	final boolean[] swapYSorted = ySorted;
+	ySorted = mergedYSorted;
+	mergedYSorted = swapYSorted;
+	final boolean[] swapRefreshKey = refreshKey;
+	refreshKey = mergedRefreshKey;
+	mergedRefreshKey = swapRefreshKey;
+	Arrays.fill(mergedHandles, 0, size, null);
+    }
+
+    /**
+     * Stable merge sort of the sprite indices in order[from, to)
+     */
+    private void mergeSort(int[] order, int[] scratch, int from, int to) {
+	if (to - from < 2) return;
+	final int middle = (from + to) >>> 1;
+	mergeSort(order, scratch, from, middle);
+	mergeSort(order, scratch, middle, to);
+
+	System.arraycopy(order, from, scratch, from, to - from);
+	int left = from;
+	int right = middle;
+	for (int i = from; i < to; i++) {
+	    if (right == to || (left < middle
+		    && compare(depths[scratch[left]], sortKeys[scratch[left]], depths[scratch[right]], sortKeys[scratch[right]]) <= 0)) {
+		order[i] = scratch[left++];
+	    } else {
+		order[i] = scratch[right++];
+	    }
+	}
+    }
+
+    /**
+     * Closes the gaps left by removed sprites, keeping the order of the rest
+     */
+    private void compact() {
+	int to = 0;
+	int sortedTo = 0;
+	for (int from = 0; from < size; from++) {
+	    if (from == sortedSize) sortedTo = to;
+	    if (handles[from] == null) continue;
+	    if (from != to) move(from, to);
+	    to++;
+	}
+	if (sortedSize >= size) sortedTo = to;
+	Arrays.fill(handles, to, size, null);
+	size = to;
+	sortedSize = sortedTo;
+	removed = 0;
+    }
+
+    private void move(int from, int to) {
+	handles[to] = handles[from];
+	depths[to] = depths[from];
+	sortKeys[to] = sortKeys[from];
+	ySorted[to] = ySorted[from];
+	refreshKey[to] = refreshKey[from];
+	handles[to].index = to;
+    }
+
+    private static int compare(int depth1, double sortKey1, int depth2, double sortKey2) {
+	if (depth1 != depth2) return Integer.compare(depth1, depth2);
+	return Double.compare(sortKey1, sortKey2);
+    }
+
+    private void grow() {
+	final int capacity = handles.length * 2;
+	handles = Arrays.copyOf(handles, capacity);
+	depths = Arrays.copyOf(depths, capacity);
+	sortKeys = Arrays.copyOf(sortKeys, capacity);
+	ySorted = Arrays.copyOf(ySorted, capacity);
+	refreshKey = Arrays.copyOf(refreshKey, capacity);
+    }
+
+    /**
+     * @return the number of sprites in the queue
+     */
+    public int size() {
+	return size - removed;
+    }
+
+    /**
+     * @return a new list with all sprites in drawing order as of the last sort, safe to call from any thread
+     */
+    public ArrayList<Sprite> getSprites() {
+	return new ArrayList<>(Arrays.asList(drawOrder.sprites));
+    }
+
+    /**
+     * @return a new list with the sprites in one depth, in drawing order as of the last sort, safe to call from any thread
+     */
+    public ArrayList<Sprite> getSprites(int depth) {
+	final DrawOrder current = drawOrder;
+	final ArrayList<Sprite> list = new ArrayList<>();
+	for (int i = 0; i < current.sprites.length; i++) {
+	    if (current.depths[i] == depth) list.add(current.sprites[i]);
+	}
+	return list;
+    }
+
+    /**
+     * Place of a sprite in the queue, handed out when the sprite is added and used for removing it without searching the queue.
+     */
+    public static final class Handle
+    {
+	private final Sprite sprite;
+	private int index = -1;
+	private Group group = null;
+	private Object batchKey = null;
+
+	private Handle(Sprite sprite) {
+	    this.sprite = sprite;
+	}
+
+	public Sprite getSprite() {
+	    return sprite;
+	}
+
+	/**
+	 * @return true until the sprite is removed from the queue
+	 */
+	public boolean isQueued() {
+	    return index >= 0;
+	}
+    }
+
+    /**
+     * The sprites in drawing order and their depths, never changed once published
+     */
+    private static final class DrawOrder
+    {
+	private final Sprite[] sprites;
+	private final int[] depths;
+
+	private DrawOrder(Sprite[] sprites, int[] depths) {
+	    this.sprites = sprites;
+	    this.depths = depths;
+	}
+    }
+
+    /**
+     * Sprites that share a batch key, ordered by when the first of them was added.
+     */
+    private static final class Group
+    {
+	private final long order;
+	private int members = 0;
+
+	private Group(long order) {
+	    this.order = order;
+	}
+    }
+}
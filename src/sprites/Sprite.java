@@ -14,4 +14,41 @@ public interface Sprite
     double getRotation();
 
     void draw(final Graphics g, final JComponent jc);
+
+    /**
+     * Draws the sprite through a batch, which only changes the state of the graphics when it differs from the previous sprite
+     */
+    default void draw(final SpriteBatch batch) {
+        batch.drawUnbatched(this);
+    }
+
+    /**
+     * @return how far down the sprite reaches, sprites that reach further are drawn over the others in a y-sorted layer. Sprites that
+     * scroll with the map measure it on the map rather than on screen, so that it doesn't change when the view moves.
+     */
+    default double getSortY() {
+        return getPosition().getY();
+    }
+
+    /**
+     * @return true if getSortY never changes while the sprite is in a render queue, so that the queue doesn't read it every frame
+     */
+    default boolean isSortYFixed() {
+        return false;
+    }
+
+    /**
+     * @return an object shared by the sprites that draw with the same image or graphics state, or null if the sprite sets its own state
+     */
+    default Object getBatchKey() {
+        return null;
+    }
+
+    /**
+     * Writes the area of the screen that the sprite is drawn on, measured in pixels, to bounds
+     * @return false if the area isn't known, then the sprite is assumed to cover the whole screen
+     */
+    default boolean getScreenBounds(Rectangle bounds) {
+        return false;
+    }
 }
@@ -0,0 +1,73 @@
+package src.sprites;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws sprites onto a graphics object while keeping track of its colour and font, so that a run of sprites that share the same state
+ * only sets it once. The sprite handler keeps the sprites of a layer grouped by their batch key, which makes such runs the common case.
+ */
+public class SpriteBatch
+{
+    private Graphics g = null;
+    private JComponent jc = null;
+    private Color color = null;
+    private Font font = null;
+
+    /**
+     * Starts drawing onto a graphics object, must be called before the first sprite of every paint.
+     */
+    public void begin(Graphics g, JComponent jc) {
+	this.g = g;
+	this.jc = jc;
+	color = g.getColor();
+	font = g.getFont();
+    }
+
+    /**
+     * Draws a sprite, with the batched draw of the sprite if it has one.
+     */
+    public void draw(Sprite sprite) {
+	sprite.draw(this);
+    }
+
+    /**
+     * Draws a sprite that sets the state of the graphics itself, and reads back the state it left behind.
+     */
+    public void drawUnbatched(Sprite sprite) {
+	sprite.draw(g, jc);
+	color = g.getColor();
+	font = g.getFont();
+    }
+
+    public void setColor(Color color) {
+	if (!color.equals(this.color)) {
+	    g.setColor(color);
+	    this.color = color;
+	}
+    }
+
+    public void setFont(Font font) {
+	if (!font.equals(this.font)) {
+	    g.setFont(font);
+	    this.font = font;
+	}
+    }
+
+    public void drawImage(BufferedImage image, int x, int y) {
+	g.drawImage(image, x, y, jc);
+    }
+
+    public void drawLine(int x1, int y1, int x2, int y2) {
+	g.drawLine(x1, y1, x2, y2);
+    }
+
+    public void drawString(String string, int x, int y) {
+	g.drawString(string, x, y);
+    }
+
+    public void fillRect(int x, int y, int width, int height) {
+	g.fillRect(x, y, width, height);
+    }
+}
@@ -1,10 +1,7 @@
 package src.sprites;
 
-import src.tools.Vector2D;
 import src.tools.time.*;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.*;
 
@@ -13,20 +10,26 @@ import java.util.*;
  */
 public class SpriteHandler
 {
-    private BufferedImage background = null;
-    private final Map<SpriteLayer, List<Sprite>> spriteLayers;
-    private final Map<Sprite, DeltaTimer> timedSprites;
+    /** Timed sprites are removed up to this long after their time has run out. */
+    private static final long EXPIRY_TICK_NANOS = 10_000_000;
+    /** Enough slots for the timers of hit splats to fit in one turn of the wheel. */
+    private static final int EXPIRY_WHEEL_SLOTS = 1024;
+    private RenderQueue.Handle background = null;
+    private final RenderQueue renderQueue = new RenderQueue();
+    private final Map<Sprite, RenderQueue.Handle> queuedSprites;
+    private final Map<Sprite, TimingWheel.Timeout<Sprite>> timedSprites;
+    private final TimingWheel<Sprite> expiryWheel = new TimingWheel<>(EXPIRY_TICK_NANOS, EXPIRY_WHEEL_SLOTS);
     private final List<Action> scheduledActions;
+    private final DamageRegion damage = new DamageRegion();
 
     public SpriteHandler() {
-	spriteLayers = new EnumMap<>(SpriteLayer.class);
-	timedSprites = new HashMap<>();
+	queuedSprites = new IdentityHashMap<>();
+	timedSprites = new IdentityHashMap<>();
 	scheduledActions = new ArrayList<>();
 
-	// Initialize all layers with an empty list.
 	for (SpriteLayer spriteLayer : SpriteLayer.values()) {
-	    spriteLayers.put(spriteLayer, new ArrayList<>());
-		}
+	    if (spriteLayer.isYSorted()) renderQueue.setYSorted(spriteLayer.getDepth(), true);
+	}
     }
 
     /**
@@ -36,7 +39,22 @@ public class SpriteHandler
      * @param spriteLayer  Layer to add to.
      */
     public void add(Sprite sprite, SpriteLayer spriteLayer) {
-		scheduleAction(() -> spriteLayers.get(spriteLayer).add(sprite));
+		add(sprite, spriteLayer.getDepth());
+    }
+
+    /**
+     * Schedules a sprite for addition to the spriteHandler at any depth, e.g in between two layers.
+     *
+     * @param sprite Sprite to add.
+     * @param depth  Depth to add to, sprites are drawn by increasing depth.
+     */
+    public void add(Sprite sprite, int depth) {
+		scheduleAction(() -> {
+			queue(sprite, depth);
+			// An untimed sprite stays until it is removed, even if it was timed before
+			cancelTimeout(timedSprites.remove(sprite));
+			damage.add(sprite);
+		});
     }
 
     /**
@@ -48,11 +66,21 @@ public class SpriteHandler
      */
     public void add(Sprite sprite, double time, SpriteLayer spriteLayer) {
 		scheduleAction(() -> {
-	    	spriteLayers.get(spriteLayer).add(sprite);
-	    	timedSprites.put(sprite, new DeltaTimer(time));
+	    	queue(sprite, spriteLayer.getDepth());
+	    	// Adding a timed sprite again restarts its time, the old timeout would remove it early
+	    	cancelTimeout(timedSprites.put(sprite, expiryWheel.schedule(sprite, time)));
+	    	damage.add(sprite);
 		});
     }
 
+    /**
+     * Adds a sprite to the render queue and keeps its handle, so that it can be removed without searching the queue.
+     */
+    private void queue(Sprite sprite, int depth) {
+	RenderQueue.Handle previous = queuedSprites.put(sprite, renderQueue.add(sprite, depth));
+	if (previous != null) renderQueue.remove(previous);
+    }
+
     /**
      * Schedules a sprite for removal from the sprite handler.
      *
@@ -60,17 +88,17 @@ public class SpriteHandler
      */
     public void remove(Sprite image) {
 		scheduleAction(() -> {
-			// Remove from spriteLayer
-			for (List<Sprite> sprites : spriteLayers.values()) {
-				if (sprites.remove(image)) {
-					break;
-				}
-			}
-
-			timedSprites.remove(image);
+			RenderQueue.Handle handle = queuedSprites.remove(image);
+			if (handle != null && renderQueue.remove(handle)) damage.add(image);
+
+			cancelTimeout(timedSprites.remove(image));
 		});
 	}
 
+    private void cancelTimeout(TimingWheel.Timeout<Sprite> timeout) {
+	if (timeout != null) expiryWheel.cancel(timeout);
+    }
+
     /**
      * Removes one image and adds another one. Can be used to update a sprite texture by giving the old sprite and sending in the new one.
      *
@@ -83,46 +111,34 @@ public class SpriteHandler
 		add(newSprite, newSpriteLayer);
     }
 
-    public void setBackground(BufferedImage bg) {
-	background = bg;
-    }
-
     /**
-     * Gets the entire background texture.
+     * Sets the sprite drawn below everything else, usually a StaticLayer so that it's baked once.
      *
-     * @return Background texture.
+     * @param bg Background sprite.
      */
-    public SpriteTexture getBackgroundTexture() {
-	return new SpriteTexture(new Vector2D(), 0, background);
+    public void setBackground(Sprite bg) {
+	if (background != null) renderQueue.remove(background);
+	background = renderQueue.add(bg, SpriteLayer.BACKGROUND.getDepth());
+	damage.addAll();
     }
 
     /**
-     * Permanently adds an image to the background.
+     * Gets the queue that the sprites are drawn from, which other handlers can add the sprites they own to directly.
      *
-     * @param image Image to add.
-     * @param x     Vertical coordinate.
-     * @param y     Horizontal coordinate.
+     * @return Render queue.
      */
-    public void addToBackground(BufferedImage image, int x, int y) {
-		Graphics g = background.getGraphics();
-		g.drawImage(image, x, y, null);
+    public RenderQueue getRenderQueue() {
+	return renderQueue;
     }
 
     /**
-     * Updates the timers for all sprites, and removes sprites that has run out of time
+     * Advances the timers of the timed sprites, and removes the sprites that have run out of time. Only the sprites that expire are
+     * looked at.
      *
      * @param deltaTime Elapsed time.
      */
     private void updateSpriteTimers(DeltaTime deltaTime) {
-	for (Map.Entry<Sprite, DeltaTimer> pair : timedSprites.entrySet()) {
-
-	    DeltaTimer timer = pair.getValue();
-	    timer.update(deltaTime);
-
-	    if (timer.isComplete()) {
-		remove(pair.getKey());
-	    }
-	}
+	expiryWheel.advance(deltaTime, this::remove);
     }
 
     /**
@@ -136,6 +152,22 @@ public class SpriteHandler
 	executeScheduledActions();
     }
 
+    /**
+     * Adds the screen areas of the sprites that have been added or removed, and the changed parts of the background, since the last
+     * call to damage
+     */
+    public void pollDamage(DamageRegion damage) {
+	damage.add(this.damage);
+	this.damage.clear();
+    }
+
+    /**
+     * Sorts the sprites again after they have moved, should be called once all sprites of the frame have been updated.
+     */
+    public void sort() {
+	renderQueue.sort();
+    }
+
     /**
      * Returns a list with all sprites on a given layer.
      *
@@ -144,14 +176,16 @@ public class SpriteHandler
      * @return A new list with sprites.
      */
     public ArrayList<Sprite> getLayerIterator(SpriteLayer spriteLayer) {
-	if (spriteLayer == SpriteLayer.FIRST && background != null) {
-	    ArrayList<Sprite> sprites = new ArrayList<>();
-	    sprites.add(getBackgroundTexture());
-	    sprites.addAll(spriteLayers.get(spriteLayer));
-	    return sprites;
-	}
+	return renderQueue.getSprites(spriteLayer.getDepth());
+    }
 
-	return new ArrayList<>(spriteLayers.get(spriteLayer));
+    /**
+     * Returns a list with all sprites in the order they are drawn.
+     *
+     * @return A new list with sprites.
+     */
+    public ArrayList<Sprite> getIterator() {
+	return renderQueue.getSprites();
     }
 
     /**
@@ -1,8 +1,28 @@
 package src.sprites;
 
 /**
- * Class representing the different layers that sprites can exist in. Used for drawing sprites in the right order.
+ * Class representing the different layers that sprites can exist in. Used for drawing sprites in the right order, layers are drawn by
+ * increasing depth. Any depth can be used for sprites that need to go in between.
  */
 public enum SpriteLayer
-{FIRST, LAST
+{BACKGROUND(0, false), FIRST(100, false), ENTITIES(200, true), LAST(300, false);
+
+    private final int depth;
+    private final boolean ySorted;
+
+    SpriteLayer(int depth, boolean ySorted) {
+	this.depth = depth;
+	this.ySorted = ySorted;
+    }
+
+    public int getDepth() {
+	return depth;
+    }
+
+    /**
+     * @return whether the sprites of the layer are drawn by how far down the screen they reach instead of in the order they were added
+     */
+    public boolean isYSorted() {
+	return ySorted;
+    }
 }
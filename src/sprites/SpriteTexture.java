@@ -7,6 +7,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static src.tools.image.BufferedImageRotate.rotateImage;
 
@@ -23,8 +25,9 @@ public class SpriteTexture implements Sprite
     private BufferedImage image = null;
     private Color color = null;
     private String textString = null;
-    private int fontSize = DEFAULT_FONT_SIZE;
+    private Font font = null;
     private final static int DEFAULT_FONT_SIZE = 24;
+    private final static Map<Integer, Font> FONTS = new ConcurrentHashMap<>();
 
     /**
      * Create SpriteTexture with image.
@@ -59,7 +62,7 @@ public class SpriteTexture implements Sprite
 		this.color = color;
 		this.textString = textString;
 		this.position = position;
-		this.fontSize = fontSize;
+		this.font = getFont(fontSize);
 		this.rotation = new Rotation(rotation);
 
     }
@@ -72,9 +75,17 @@ public class SpriteTexture implements Sprite
 		this.color = color;
 		this.textString = textString;
 		this.position = position;
+		this.font = getFont(DEFAULT_FONT_SIZE);
 		this.rotation = new Rotation(rotation);
     }
 
+    /**
+     * Fonts are shared between all text sprites of the same size instead of being created whenever one is drawn
+     */
+    private static Font getFont(int fontSize) {
+		return FONTS.computeIfAbsent(fontSize, size -> new Font("Verdana", Font.BOLD, size));
+    }
+
     @Override public double getRotation() {
 	return rotation.getRadians();
     }
@@ -87,6 +98,26 @@ public class SpriteTexture implements Sprite
 	return size;
     }
 
+    @Override public boolean getScreenBounds(Rectangle bounds) {
+		int positionX = (int) position.getX();
+		int positionY = (int) position.getY();
+		switch (spriteType) {
+			case IMAGE -> bounds.setBounds(positionX, positionY, image.getWidth(), image.getHeight());
+			case RECTANGLE -> bounds.setBounds(positionX, positionY, (int) size.getX(), (int) size.getY());
+			case LINE -> {
+			bounds.setBounds(positionX, positionY, 0, 0);
+			bounds.add((int) size.getX(), (int) size.getY());
+			bounds.width++;
+			bounds.height++;
+			}
+			// The size of text depends on the font metrics of the graphics it is drawn with
+			default -> {
+			return false;
+			}
+		}
+		return true;
+    }
+
     @Override public void draw(final Graphics g, final JComponent gc) {
 		int positionX = (int) position.getX();
 		int positionY = (int) position.getY();
@@ -97,7 +128,6 @@ public class SpriteTexture implements Sprite
 			g.drawLine(positionX, positionY, (int) size.getX(), (int) size.getY());
 			}
 			case TEXT -> {
-			Font font = new Font("Verdana", Font.BOLD, fontSize);
 			g.setFont(font);
 			g.setColor(color);
 			g.drawString(textString, positionX, positionY);
@@ -109,4 +139,33 @@ public class SpriteTexture implements Sprite
 		}
 
     }
+
+    @Override public void draw(final SpriteBatch batch) {
+		int positionX = (int) position.getX();
+		int positionY = (int) position.getY();
+		switch (spriteType) {
+			case IMAGE -> batch.drawImage(image, positionX, positionY);
+			case LINE -> {
+			batch.setColor(color);
+			batch.drawLine(positionX, positionY, (int) size.getX(), (int) size.getY());
+			}
+			case TEXT -> {
+			batch.setFont(font);
+			batch.setColor(color);
+			batch.drawString(textString, positionX, positionY);
+			}
+			case RECTANGLE -> {
+			batch.setColor(color);
+			batch.fillRect(positionX, positionY, (int) size.getX(), (int) size.getY());
+			}
+		}
+    }
+
+    @Override public Object getBatchKey() {
+		return switch (spriteType) {
+			case IMAGE -> image;
+			case TEXT -> font;
+			default -> color;
+		};
+    }
 }
@@ -0,0 +1,180 @@
+package src.sprites;
+
+import src.tools.Vector2D;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sprites that never change, baked into cached images the first time they are drawn and baked again only when the size of the
+ * component changes. The screen area of the sprites is split into rectangles that don't overlap, each copied out to an image of its
+ * own, so a pixel covered by several sprites is painted once, and a rectangle that the sprites cover completely is drawn as an opaque
+ * image without any blending.
+ */
+public class StaticLayer implements Sprite
+{
+    private final Function<Dimension, List<? extends Sprite>> layerFactory;
+    private final List<Region> regions = new ArrayList<>();
+    private final Rectangle bounds = new Rectangle();
+    private final Dimension bakedSize = new Dimension(-1, -1);
+
+    /**
+     * @param layerFactory creates the sprites of the layer for a component of the given size, called again whenever the size changes
+     */
+    public StaticLayer(Function<Dimension, List<? extends Sprite>> layerFactory) {
+	this.layerFactory = layerFactory;
+    }
+
+    @Override public Vector2D getPosition() {
+	return new Vector2D(bounds.x, bounds.y);
+    }
+
+    @Override public Vector2D getSize() {
+	return new Vector2D(bounds.width, bounds.height);
+    }
+
+    @Override public double getRotation() {
+	return 0;
+    }
+
+    @Override public boolean getScreenBounds(Rectangle bounds) {
+	if (bakedSize.width < 0) return false;
+	bounds.setBounds(this.bounds);
+	return true;
+    }
+
+    /**
+     * @return the number of images the layer is drawn with when all of it is visible
+     */
+    public int getRegionCount() {
+	return regions.size();
+    }
+
+    @Override public void draw(final Graphics g, final JComponent jc) {
+	if (jc.getWidth() != bakedSize.width || jc.getHeight() != bakedSize.height) {
+	    bake(jc);
+	}
+
+	final Rectangle clip = g.getClipBounds();
+	for (Region region : regions) {
+	    if (clip == null || clip.intersects(region.bounds)) {
+		g.drawImage(region.image, region.bounds.x, region.bounds.y, jc);
+	    }
+	}
+    }
+
+    private void bake(JComponent jc) {
+	bakedSize.setSize(jc.getWidth(), jc.getHeight());
+	regions.clear();
+	bounds.setBounds(0, 0, 0, 0);
+
+	final List<? extends Sprite> sprites = layerFactory.apply(new Dimension(bakedSize));
+	final Rectangle screen = new Rectangle(bakedSize);
+	final Rectangle spriteBounds = new Rectangle();
+	final List<Rectangle> areas = new ArrayList<>();
+	for (Sprite sprite : sprites) {
+	    if (!sprite.getScreenBounds(spriteBounds)) spriteBounds.setBounds(screen);
+	    Rectangle.intersect(spriteBounds, screen, spriteBounds);
+	    if (spriteBounds.isEmpty()) continue;
+
+	    // Only the parts not already covered by an earlier sprite become new areas
+	    List<Rectangle> pieces = new ArrayList<>();
+	    pieces.add(new Rectangle(spriteBounds));
+	    for (Rectangle area : areas) {
+		List<Rectangle> remaining = new ArrayList<>();
+		for (Rectangle piece : pieces) {
+		    subtract(piece, area, remaining);
+		}
+		pieces = remaining;
+	    }
+	    areas.addAll(pieces);
+	}
+	if (areas.isEmpty()) return;
+
+	bounds.setBounds(areas.get(0));
+	for (Rectangle area : areas) {
+	    bounds.add(area);
+	}
+
+	final BufferedImage canvas = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+	final Graphics2D g = canvas.createGraphics();
+	g.translate(-bounds.x, -bounds.y);
+	for (Sprite sprite : sprites) {
+	    sprite.draw(g, jc);
+	}
+	g.dispose();
+
+	final int[] pixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+	final GraphicsConfiguration configuration = jc.getGraphicsConfiguration();
+	for (Rectangle area : areas) {
+	    regions.add(new Region(area, copyArea(canvas, pixels, area, configuration)));
+	}
+    }
+
+    /**
+     * Copies a part of the canvas to an image of its own, compatible with the screen when possible and only as transparent as the
+     * pixels require
+     */
+    private BufferedImage copyArea(BufferedImage canvas, int[] pixels, Rectangle area, GraphicsConfiguration configuration) {
+	final int offsetX = area.x - bounds.x;
+	final int offsetY = area.y - bounds.y;
+	int transparency = Transparency.OPAQUE;
+	for (int y = offsetY; y < offsetY + area.height && transparency != Transparency.TRANSLUCENT; y++) {
+	    for (int x = offsetX; x < offsetX + area.width; x++) {
+		final int alpha = pixels[y * canvas.getWidth() + x] >>> 24;
+		if (alpha == 0) transparency = Transparency.BITMASK;
+		else if (alpha != 0xFF) {
+		    transparency = Transparency.TRANSLUCENT;
+		    break;
+		}
+	    }
+	}
+
+	final BufferedImage image;
+	if (configuration != null) {
+	    image = configuration.createCompatibleImage(area.width, area.height, transparency);
+	} else if (transparency == Transparency.OPAQUE) {
+	    image = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_RGB);
+	} else {
+	    image = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+	}
+	final Graphics2D g = image.createGraphics();
+	g.setComposite(AlphaComposite.Src);
+	g.drawImage(canvas, 0, 0, area.width, area.height, offsetX, offsetY, offsetX + area.width, offsetY + area.height, null);
+	g.dispose();
+	return image;
+    }
+
+    /**
+     * Adds the parts of piece that are outside of area to result, as at most four rectangles
+     */
+    private static void subtract(Rectangle piece, Rectangle area, List<Rectangle> result) {
+	if (!piece.intersects(area)) {
+	    result.add(piece);
+	    return;
+	}
+	final int top = Math.max(piece.y, area.y);
+	final int bottom = Math.min(piece.y + piece.height, area.y + area.height);
+	if (area.y > piece.y) result.add(new Rectangle(piece.x, piece.y, piece.width, area.y - piece.y));
+	if (bottom < piece.y + piece.height) result.add(new Rectangle(piece.x, bottom, piece.width, piece.y + piece.height - bottom));
+	if (area.x > piece.x) result.add(new Rectangle(piece.x, top, area.x - piece.x, bottom - top));
+	final int right = area.x + area.width;
+	if (right < piece.x + piece.width) result.add(new Rectangle(right, top, piece.x + piece.width - right, bottom - top));
+    }
+
+    private static class Region
+    {
+	private final Rectangle bounds;
+	private final BufferedImage image;
+
+	private Region(Rectangle bounds, BufferedImage image) {
+	    this.bounds = bounds;
+	    this.image = image;
+	}
+    }
+}
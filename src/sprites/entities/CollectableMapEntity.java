@@ -3,11 +3,9 @@ package src.sprites.entities;
 import src.Game;
 import src.player.Resource;
 import src.tools.Vector2D;
-import java.util.Random;
 
-public class CollectableMapEntity extends Entity{
+public class CollectableMapEntity extends StaticEntity {
     private final Resource resourcesType;
-    private final Random rnd = new Random();
     private final EntityHandler entityHandler;
 
     public CollectableMapEntity(Vector2D position, Resource resource, EntityHandler entityHandler) {
@@ -23,6 +21,6 @@ public class CollectableMapEntity extends Entity{
 
     public int getAmount() {
         entityHandler.remove(this);
-        return rnd.nextInt(3) + 1;
+        return Game.random.nextInt(3) + 1;
     }
 }
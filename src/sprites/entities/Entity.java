@@ -7,6 +7,8 @@ import src.tools.aStar.Mover;
 import src.tools.aStar.PathFinder;
 import src.tools.aStar.PathMap;
 import src.tools.time.DeltaTime;
+import src.sprites.DamageRegion;
+import src.sprites.RenderQueue;
 import src.sprites.Sprite;
 
 import javax.swing.*;
@@ -22,11 +24,23 @@ public abstract class Entity implements Sprite, Mover {
     protected Rotation rotation;
     protected BufferedImage texture;
     protected EntityType entityType;
+    private BufferedImage paintedTexture = null;
+    private double paintedX = Double.NaN;
+    private double paintedY = Double.NaN;
+    private final Rectangle paintedBounds = new Rectangle();
+    private boolean painted = false;
+    private double mapOffsetY = 0; // Difference between where the entity is on the map and on screen, measured in pixels
+    private final Vector2D relativeMapPosition = new Vector2D(); // Reused by updateRelativePos
+    // Bookkeeping of the EntityHandler that the entity is in, so that it can be removed without searching
+    int handlerIndex = -1;
+    int updateIndex = -1;
+    boolean removalScheduled = false;
+    RenderQueue.Handle renderHandle = null;
 
     protected Entity(final Vector2D position, final Vector2D size, final double rotation, final BufferedImage texture){
         this.position = position;
-        this.relativePosition = position;
-        this.drawPosition = position;
+        this.relativePosition = position.copy();
+        this.drawPosition = position.copy();
         this.size = size;
         this.rotation = new Rotation(rotation);
         this.texture = texture;
@@ -34,26 +48,115 @@ public abstract class Entity implements Sprite, Mover {
     }
 
     /**
-     * Updates the entity
+     * Updates the entity's own state. Entities are updated in parallel, so this must not read or change other entities or state that
+     * is shared between them
      */
     public void update(DeltaTime deltaTime, WindowFocus focus) {
         updateRelativePos(focus);
     }
 
+    /**
+     * Called by the EntityHandler when the entity has been added to it
+     */
+    protected void onAdded() {
+    }
+
+    /**
+     * Called by the EntityHandler when the entity has been removed from it
+     */
+    protected void onRemoved() {
+    }
+
+    /**
+     * Second part of an update, called one entity at a time after every entity has been updated. Anything that involves other
+     * entities or shared state belongs here
+     */
+    public void resolveInteractions(DeltaTime deltaTime) {
+    }
+
     @Override public void draw(final Graphics g, final JComponent gc) {
-        g.drawImage(getTexture(), (int) drawPosition.getX(), (int) drawPosition.getY(), gc);
+        g.drawImage(getTexture(), (int) getDrawX(), (int) getDrawY(), gc);
     }
 
-    protected Vector2D getRelativeMapPosition(Vector2D pos, Vector2D focusPos){
-        return Vector2D.getDifference(position, focusPos);
+    @Override public boolean getScreenBounds(Rectangle bounds) {
+        BufferedImage texture = getTexture();
+        if (texture == null) return false;
+        bounds.setBounds((int) getDrawX(), (int) getDrawY(), texture.getWidth(), texture.getHeight());
+        return true;
+    }
+
+    /**
+     * @return the horizontal position on screen that the entity is drawn at, measured in pixels
+     */
+    protected double getDrawX() {
+        return drawPosition.getX();
+    }
+
+    /**
+     * @return the vertical position on screen that the entity is drawn at, measured in pixels
+     */
+    protected double getDrawY() {
+        return drawPosition.getY();
+    }
+
+    @Override public double getSortY() {
+        BufferedImage texture = getTexture();
+        return getDrawY() - mapOffsetY + (texture == null ? 0 : texture.getHeight());
+    }
+
+    /**
+     * If the entity's texture or screen position has changed since the last call, adds both the area it was drawn on and the area it
+     * is drawn on now to damage
+     */
+    public void pollDamage(DamageRegion damage) {
+        BufferedImage texture = getTexture();
+        if (texture == paintedTexture && getDrawX() == paintedX && getDrawY() == paintedY) return;
+        addPaintedDamage(damage);
+
+        paintedTexture = texture;
+        paintedX = getDrawX();
+        paintedY = getDrawY();
+        painted = getScreenBounds(paintedBounds);
+        addPaintedDamage(damage);
+    }
+
+    /**
+     * Adds the area that the entity was drawn on when it was last polled to damage, used when the entity is removed
+     */
+    public void addPaintedDamage(DamageRegion damage) {
+        if (paintedTexture == null) return;
+        if (painted) damage.add(paintedBounds);
+        else damage.addAll();
     }
 
+    /**
+     * Stores the position of the entity relative to the focus in result, measured in tiles
+     * @return result
+     */
+    protected Vector2D getRelativeMapPosition(WindowFocus focus, Vector2D result){
+        result.set(position.getX() - focus.getX(), position.getY() - focus.getY());
+        return result;
+    }
+
+    /**
+     * Updates where on screen the entity is, reusing its vectors so that nothing is allocated every frame
+     */
     protected void updateRelativePos(WindowFocus focus){
-        Vector2D relativeMapPosition = getRelativeMapPosition(position, focus.getPosition());
+        updateRelativePos(focus, 0, 0);
+    }
+
+    /**
+     * Updates where on screen the entity is, drawn offsetX and offsetY pixels away from its tile. The paint thread reads the draw
+     * position while the entity is updated, so it is computed first and written with one set.
+     */
+    protected final void updateRelativePos(WindowFocus focus, double offsetX, double offsetY){
+        getRelativeMapPosition(focus, relativeMapPosition);
         int tileSize = focus.getTileSize();
-        drawPosition = new Vector2D(
-                relativeMapPosition.getX() * tileSize, relativeMapPosition.getY() * tileSize);
-        relativePosition = drawPosition.copy();
+        final double x = relativeMapPosition.getX() * tileSize;
+        final double y = relativeMapPosition.getY() * tileSize;
+        mapOffsetY = y - position.getY() * tileSize;
+        relativePosition.set(x, y);
+        drawPosition.set(x + offsetX, y + offsetY);
     }
 
     public boolean isOverlap(Vector2D mapPos){
@@ -70,6 +173,43 @@ public abstract class Entity implements Sprite, Mover {
         return position.copy();
     }
 
+    /**
+     * Stores the position of the entity on the map in result instead of returning a copy
+     * @return result
+     */
+    public Vector2D getPosition(Vector2D result) {
+        result.setTo(position);
+        return result;
+    }
+
+    /**
+     * @return the column of the tile the entity stands on
+     */
+    public int getTileX() {
+        return (int) position.getX();
+    }
+
+    /**
+     * @return the row of the tile the entity stands on
+     */
+    public int getTileY() {
+        return (int) position.getY();
+    }
+
+    /**
+     * @return how many tiles wide the entity is
+     */
+    public int getTileWidth() {
+        return (int) Math.ceil(size.getX());
+    }
+
+    /**
+     * @return how many tiles high the entity is
+     */
+    public int getTileHeight() {
+        return (int) Math.ceil(size.getY());
+    }
+
     @Override public Vector2D getSize() {
         return size.copy();
     }
@@ -2,29 +2,60 @@ package src.sprites.entities;
 
 import src.sprites.entities.livingEntities.LivingEntity;
 import src.tools.WindowFocus;
+import src.sprites.DamageRegion;
+import src.sprites.RenderQueue;
 import src.sprites.Sprite;
+import src.sprites.SpriteLayer;
 import src.tools.time.DeltaTime;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Class for handling all the entities in the game. It updates all entities, notifies them about collisions, and contains functions for
- * adding/removing entities to/from the game.
+ * adding/removing entities to/from the game. Static entities aren't updated one by one, their draw positions are kept in a
+ * StaticEntityStore which updates all of them at once.
+ * <p>
+ * An update has two phases. First every entity updates its own state, in parallel on the common fork-join pool when there are many
+ * of them and the pool has more than one thread. Then the entities resolve their interactions with each other one at a time, in the
+ * order of the handler, so that the outcome doesn't depend on how the threads were scheduled.
  */
 public class EntityHandler
 {
+    /** Entities per fork-join task before it stops splitting, fewer entities than this are updated on the calling thread */
+    private static final int ENTITIES_PER_TASK = 64;
     private final List<Entity> entities;
+    private final List<Entity> updatedEntities;
+    private final StaticEntityStore staticEntities = new StaticEntityStore();
     private final List<Entity> toRemove;
     private final List<Entity> toAdd;
+    private final DamageRegion damage = new DamageRegion();
+    private final RenderQueue renderQueue;
+    private final int depth;
+    private final List<EntityListener> listeners = new ArrayList<>();
 
-
-    public EntityHandler() {
+    /**
+     * @param renderQueue queue that the entities are drawn from, they are added and removed along with the handler
+     * @param spriteLayer layer that the entities are drawn in
+     */
+    public EntityHandler(RenderQueue renderQueue, SpriteLayer spriteLayer) {
+        this.renderQueue = renderQueue;
+        this.depth = spriteLayer.getDepth();
         entities = new ArrayList<>();
+        updatedEntities = new ArrayList<>();
         toRemove = new ArrayList<>();
         toAdd = new ArrayList<>();
     }
 
+    /**
+     * @param listener told about every entity that is added or removed from now on
+     */
+    public void addListener(EntityListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Checks if a given Entity type exists within the entityhandler.
      */
@@ -43,14 +74,26 @@ public class EntityHandler
      * @param deltaTime time between updates
      */
     public void update(DeltaTime deltaTime, WindowFocus focus) {
-        // Update all entities
-        for (Entity entity : entities) {
-            entity.update(deltaTime, focus);
+        // Update all entities with behaviour of their own, and then the draw positions of the static ones
+        final int count = updatedEntities.size();
+        if (count <= ENTITIES_PER_TASK || ForkJoinPool.getCommonPoolParallelism() < 2) updateRange(0, count, deltaTime, focus);
+        else ForkJoinPool.commonPool().invoke(new UpdateTask(0, count, deltaTime, focus));
+        for (int i = 0; i < count; i++) {
+            final Entity entity = updatedEntities.get(i);
+            entity.resolveInteractions(deltaTime);
+            entity.pollDamage(damage);
         }
+        staticEntities.update(focus);
 
         internalUpdate();
     }
 
+    private void updateRange(int from, int to, DeltaTime deltaTime, WindowFocus focus) {
+        for (int i = from; i < to; i++) {
+            updatedEntities.get(i).update(deltaTime, focus);
+        }
+    }
+
     /**
      * Updates EntityHandler internally
      */
@@ -60,6 +103,14 @@ public class EntityHandler
 	clearEntities();
     }
 
+    /**
+     * Adds the screen areas that entities have changed since the last call to damage
+     */
+    public void pollDamage(DamageRegion damage) {
+	damage.add(this.damage);
+	this.damage.clear();
+    }
+
     /**
      * Schedules an entity for addition to the entity handler. It will be added when possible.
      *
@@ -76,11 +127,22 @@ public class EntityHandler
      */
     public void remove(Entity entity) {
 	// Do not allow duplicates
-	if (!toRemove.contains(entity)) {
+	if (!entity.removalScheduled) {
+	    entity.removalScheduled = true;
 	    toRemove.add(entity);
 	}
     }
 
+    /**
+     * Schedules all entities for removal, including the ones that are scheduled for addition but not yet added.
+     */
+    public void clear() {
+	toAdd.clear();
+	for (Entity entity : entities) {
+	    remove(entity);
+	}
+    }
+
     /**
      * Returns an iterator with a sprite for each entity.
      *
@@ -95,15 +157,59 @@ public class EntityHandler
      * Adds entities that have been scheduled for adding.
      */
     private void addEntities() {
-	entities.addAll(toAdd);
+	// Added entities are polled for damage on their first update, when their screen position is known
+	for (Entity entity : toAdd) {
+	    if (entity.handlerIndex >= 0) continue;
+	    entity.handlerIndex = entities.size();
+	    entities.add(entity);
+	    if (entity instanceof StaticEntity) {
+		staticEntities.add((StaticEntity) entity);
+		damage.add(entity);
+	    } else {
+		entity.updateIndex = updatedEntities.size();
+		updatedEntities.add(entity);
+	    }
+	    entity.renderHandle = renderQueue.add(entity, depth);
+	    entity.onAdded();
+	    for (EntityListener listener : listeners) listener.entityAdded(entity);
+	}
 	toAdd.clear();
     }
 
     /**
-     * Removes entities that have been scheduled for removal.
+     * Removes entities that have been scheduled for removal. Each one is swapped with the last entity and removed from the end, so
+     * the order of the remaining entities changes.
      */
     private void clearEntities() {
-	entities.removeAll(toRemove);
+	for (Entity entity : toRemove) {
+	    entity.removalScheduled = false;
+	    final int index = entity.handlerIndex;
+	    if (index < 0) continue;
+
+	    final Entity last = entities.remove(entities.size() - 1);
+	    if (last != entity) {
+		entities.set(index, last);
+		last.handlerIndex = index;
+	    }
+	    entity.handlerIndex = -1;
+	    renderQueue.remove(entity.renderHandle);
+	    entity.renderHandle = null;
+
+	    if (entity instanceof StaticEntity) {
+		damage.add(entity);
+		staticEntities.remove((StaticEntity) entity);
+	    } else {
+		final Entity lastUpdated = updatedEntities.remove(updatedEntities.size() - 1);
+		if (lastUpdated != entity) {
+		    updatedEntities.set(entity.updateIndex, lastUpdated);
+		    lastUpdated.updateIndex = entity.updateIndex;
+		}
+		entity.updateIndex = -1;
+		entity.addPaintedDamage(damage);
+	    }
+	    entity.onRemoved();
+	    for (EntityListener listener : listeners) listener.entityRemoved(entity);
+	}
 	toRemove.clear();
     }
 
@@ -113,7 +219,7 @@ public class EntityHandler
      */
     public boolean entitiesInactive(){
         boolean entitiesInactive = true; //if set to false somewhere in for loop, keep it false
-        for (Entity entity : getIterator()) {
+        for (Entity entity : updatedEntities) {
             if (entity.getEntityType() == EntityType.LIVING && entitiesInactive){
                 LivingEntity livingEntity = (LivingEntity)entity;
                 entitiesInactive = livingEntity.isInactive();
@@ -122,4 +228,32 @@ public class EntityHandler
 
         return entitiesInactive;
     }
+
+    /**
+     * Updates a range of the updated entities, split in halves until the ranges are small enough
+     */
+    private class UpdateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final DeltaTime deltaTime;
+        private final WindowFocus focus;
+
+        private UpdateTask(int from, int to, DeltaTime deltaTime, WindowFocus focus) {
+            this.from = from;
+            this.to = to;
+            this.deltaTime = deltaTime;
+            this.focus = focus;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= ENTITIES_PER_TASK) {
+                updateRange(from, to, deltaTime, focus);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new UpdateTask(from, middle, deltaTime, focus), new UpdateTask(middle, to, deltaTime, focus));
+        }
+    }
 }
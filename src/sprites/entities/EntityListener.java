@@ -0,0 +1,11 @@
+package src.sprites.entities;
+
+/**
+ * Is told when entities enter or leave an entity handler, e.g to keep a structure built from the entities up to date without scanning
+ * all of them every frame
+ */
+public interface EntityListener {
+    void entityAdded(Entity entity);
+
+    void entityRemoved(Entity entity);
+}
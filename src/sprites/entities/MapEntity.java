@@ -5,7 +5,7 @@ import src.tools.Vector2D;
 
 import java.awt.image.BufferedImage;
 
-public class MapEntity extends Entity {
+public class MapEntity extends StaticEntity {
     public MapEntity(final Vector2D position, final BufferedImage texture){
         super(position, new Vector2D(1,1), 0, texture);
         setEntityType(EntityType.OBSTACLE);
@@ -0,0 +1,66 @@
+package src.sprites.entities;
+
+import src.tools.Vector2D;
+import src.tools.WindowFocus;
+import src.tools.time.DeltaTime;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Entity without any behaviour of its own, e.g an obstacle or a collectable. An entity handler doesn't update its static entities one
+ * by one, it keeps their positions in a StaticEntityStore and updates where all of them are drawn in one pass over the store.
+ */
+public abstract class StaticEntity extends Entity {
+    // Set while the entity is in the store of an entity handler. The paint thread reads them while the game thread adds and removes
+    // entities, so they're volatile and read once into locals: the store copies the draw position into the entity before unlinking it,
+    // and an index below 0 means that the entity has been unlinked.
+    volatile StaticEntityStore store = null;
+    volatile int storeIndex = -1;
+
+    protected StaticEntity(final Vector2D position, final Vector2D size, final double rotation, final BufferedImage texture) {
+        super(position, size, rotation, texture);
+    }
+
+    @Override
+    public void update(DeltaTime deltaTime, WindowFocus focus) {
+        // The store updates the draw position
+    }
+
+    @Override
+    protected double getDrawX() {
+        final StaticEntityStore currentStore = store;
+        final int index = storeIndex;
+        return currentStore == null || index < 0 ? super.getDrawX() : currentStore.getDrawX(index);
+    }
+
+    @Override
+    protected double getDrawY() {
+        final StaticEntityStore currentStore = store;
+        final int index = storeIndex;
+        return currentStore == null || index < 0 ? super.getDrawY() : currentStore.getDrawY(index);
+    }
+
+    @Override
+    public double getSortY() {
+        final StaticEntityStore currentStore = store;
+        final int index = storeIndex;
+        if (currentStore == null || index < 0) return super.getSortY();
+        BufferedImage texture = getTexture();
+        return currentStore.getMapY(index) + (texture == null ? 0 : texture.getHeight());
+    }
+
+    /**
+     * Static entities are only moved before they are added to a handler, so their place on the map stays the same while they're drawn
+     */
+    @Override
+    public boolean isSortYFixed() {
+        return store != null;
+    }
+
+    @Override
+    public void setPosition(Vector2D position) {
+        super.setPosition(position);
+        final StaticEntityStore currentStore = store;
+        if (currentStore != null) currentStore.setPosition(storeIndex, position.getX(), position.getY());
+    }
+}
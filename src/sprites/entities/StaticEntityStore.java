@@ -0,0 +1,119 @@
+package src.sprites.entities;
+
+import src.tools.Vector2D;
+import src.tools.WindowFocus;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the static entities of an entity handler, kept as structure of arrays so that updating where they are drawn is one
+ * linear pass over primitive arrays instead of a call on every entity. The pass only runs when the window focus has moved, since static
+ * entities never move by themselves.
+ */
+class StaticEntityStore
+{
+    private static final int INITIAL_CAPACITY = 64;
+    private StaticEntity[] entities = new StaticEntity[INITIAL_CAPACITY];
+    private double[] positionX = new double[INITIAL_CAPACITY]; // Measured in tiles
+    private double[] positionY = new double[INITIAL_CAPACITY];
+    private double[] drawX = new double[INITIAL_CAPACITY]; // Measured in pixels
+    private double[] drawY = new double[INITIAL_CAPACITY];
+    private int size = 0;
+    private double focusX = 0;
+    private double focusY = 0;
+    private int tileSize = 0;
+    private int focusGeneration = -1;
+    private WindowFocus focus = null;
+
+    void add(StaticEntity entity) {
+	if (size == entities.length) grow();
+
+	final Vector2D position = entity.position;
+	entities[size] = entity;
+	positionX[size] = position.getX();
+	positionY[size] = position.getY();
+	updateDrawPosition(size);
+	entity.store = this;
+	entity.storeIndex = size++;
+    }
+
+    /**
+     * Removes an entity by moving the last one into its place
+     */
+    void remove(StaticEntity entity) {
+	final int index = entity.storeIndex;
+	// The entity keeps being drawn where it was
+	entity.drawPosition.set(drawX[index], drawY[index]);
+
+	final int last = --size;
+	if (index != last) {
+	    entities[index] = entities[last];
+	    positionX[index] = positionX[last];
+	    positionY[index] = positionY[last];
+	    drawX[index] = drawX[last];
+	    drawY[index] = drawY[last];
+	    entities[index].storeIndex = index;
+	}
+	entities[last] = null;
+	entity.store = null;
+	entity.storeIndex = -1;
+    }
+
+    void setPosition(int index, double x, double y) {
+	positionX[index] = x;
+	positionY[index] = y;
+	updateDrawPosition(index);
+    }
+
+    /**
+     * Updates where every entity is drawn if the focus has moved since the last update
+     */
+    void update(WindowFocus focus) {
+	if (focus == this.focus && focus.getGeneration() == focusGeneration) return;
+	this.focus = focus;
+	focusGeneration = focus.getGeneration();
+	focusX = focus.getX();
+	focusY = focus.getY();
+	tileSize = focus.getTileSize();
+
+	for (int i = 0; i < size; i++) {
+	    drawX[i] = (positionX[i] - focusX) * tileSize;
+	}
+	for (int i = 0; i < size; i++) {
+	    drawY[i] = (positionY[i] - focusY) * tileSize;
+	}
+    }
+
+    private void updateDrawPosition(int index) {
+	drawX[index] = (positionX[index] - focusX) * tileSize;
+	drawY[index] = (positionY[index] - focusY) * tileSize;
+    }
+
+    /**
+     * @return the vertical position of the entity on the map, measured in pixels
+     */
+    double getMapY(int index) {
+	return positionY[index] * tileSize;
+    }
+
+    double getDrawX(int index) {
+	return drawX[index];
+    }
+
+    double getDrawY(int index) {
+	return drawY[index];
+    }
+
+    int size() {
+	return size;
+    }
+
+    private void grow() {
+	final int capacity = entities.length * 2;
+	entities = Arrays.copyOf(entities, capacity);
+	positionX = Arrays.copyOf(positionX, capacity);
+	positionY = Arrays.copyOf(positionY, capacity);
+	drawX = Arrays.copyOf(drawX, capacity);
+	drawY = Arrays.copyOf(drawY, capacity);
+    }
+}
@@ -68,14 +68,19 @@ public class CombatLivingEntity extends LivingEntity {
     }
 
     @Override
-    protected Vector2D getRelativeMapPosition(Vector2D pos, Vector2D focusPos){
-        return Vector2D.getSum(focusPos, position);
+    protected Vector2D getRelativeMapPosition(WindowFocus focus, Vector2D result){
+        result.set(focus.getX() + position.getX(), focus.getY() + position.getY());
+        return result;
     }
 
     public int getInitiative(){
         return stats.getInitiative();
     }
 
+    public CombatStats getStats(){
+        return stats;
+    }
+
     public void setCombatEntityHandler(EntityHandler combatEntityHandler){
         this.entityHandler = combatEntityHandler;
     }
@@ -106,7 +111,7 @@ public class CombatLivingEntity extends LivingEntity {
         g.setColor(Color.WHITE);
         g.drawString(Integer.toString(amountDead), 0, splatImage.getHeight());
 
-        SpriteTexture hitSplat = new SpriteTexture(drawPosition, 0, splatImage);
+        SpriteTexture hitSplat = new SpriteTexture(drawPosition.copy(), 0, splatImage);
         spriteHandler.add(hitSplat, 5, SpriteLayer.LAST);
     }
     @Override
@@ -136,6 +141,12 @@ public class CombatLivingEntity extends LivingEntity {
         g2.drawString(Integer.toString(stats.getStackSize()), drawX + bannerWidth/3, drawY + g.getFont().getSize());
     }
 
+    @Override
+    public boolean getScreenBounds(Rectangle bounds) {
+        // The banner and the hit splats are drawn outside of the texture
+        return false;
+    }
+
     @Override
     public void draw(Graphics g, JComponent gc) {
         super.draw(g, gc);
@@ -1,9 +1,12 @@
 package src.sprites.entities.livingEntities;
 
+import src.Game;
 import src.tools.JsonReader;
+import src.tools.save.SaveReader;
+import src.tools.save.SaveWriter;
 
+import java.io.IOException;
 import java.util.Map;
-import java.util.Random;
 
 public class CombatStats {
     private int stackSize;
@@ -13,7 +16,6 @@ public class CombatStats {
     private final int maxDamage;
     private final int initiative;
     private final int maxMovement;
-    private final Random rnd = new Random();
 
     /**
      * The combat stats of a CombatLivingEntity
@@ -37,7 +39,15 @@ public class CombatStats {
      */
     public int rollDamage(){
         if (stackSize <= 0) return 0;
-        return rnd.nextInt((maxDamage - minDamage) * stackSize) + minDamage * stackSize;
+        return Game.random.nextInt((maxDamage - minDamage) * stackSize) + minDamage * stackSize;
+    }
+
+    /**
+     * @return the average of the damage that rollDamage rolls
+     */
+    public double getExpectedDamage(){
+        if (stackSize <= 0) return 0;
+        return minDamage * stackSize + ((maxDamage - minDamage) * stackSize - 1) * 0.5;
     }
 
     /**
@@ -64,4 +74,17 @@ public class CombatStats {
     }
 
     public int getMaxMovement() {return maxMovement;}
+
+    /**
+     * Writes the state of this set of stats that can change during a game, i.e not the values read from json.
+     */
+    public void save(SaveWriter out) throws IOException {
+        out.writeInt(stackSize);
+        out.writeInt(totalHealth);
+    }
+
+    public void load(SaveReader in) throws IOException {
+        stackSize = in.readInt();
+        totalHealth = in.readInt();
+    }
 }
@@ -5,7 +5,6 @@ import src.sprites.entities.Entity;
 import src.sprites.entities.EntityHandler;
 import src.sprites.entities.EntityType;
 import src.tools.JsonReader;
-import src.tools.Rotation;
 import src.tools.WindowFocus;
 import src.player.PlayerTeam;
 import src.tools.aStar.PathFinder;
@@ -23,6 +22,9 @@ import java.util.Map;
 public abstract class LivingEntity extends Entity {
     protected final Character.CharacterEnum character;
     protected final Vector2D characterOffset;
+    private final Vector2D direction = new Vector2D(); // Reused by move so that moving allocates nothing
+    private double stepOffsetX = 0; // How far the entity is drawn from its tile towards the next step, measured in pixels
+    private double stepOffsetY = 0;
     protected Vector2D interactPos;
     protected Animation animation;
     protected boolean alive = true;
@@ -54,11 +56,7 @@ public abstract class LivingEntity extends Entity {
         movement = maxMovement;
         setEntityType(EntityType.LIVING);
 
-        switch (team.getTeamColor()){
-            case RED -> flag = Game.imageLoader.getImage(ImageLoader.ImageName.RED_FLAG);
-            case BLUE -> flag = Game.imageLoader.getImage(ImageLoader.ImageName.BLUE_FLAG);
-            default -> flag = Game.imageLoader.getImage(ImageLoader.ImageName.ERROR);
-        }
+        setFlag(team);
 
         Map<?, ?> jsonMap = JsonReader.readJsonCritical(character);
         int offset_x = (int) (double) jsonMap.get("character_offset_x");
@@ -68,15 +66,29 @@ public abstract class LivingEntity extends Entity {
 
     @Override
     public void update(DeltaTime deltaTime, WindowFocus focus) {
-        super.update(deltaTime, focus);
         if (alive) move(deltaTime, focus);
-        if (interactPos != null) tryInteract(interactPos);
+        // Updates the draw position once the step and the offset towards the next one are known
+        super.update(deltaTime, focus);
+        // An interaction can change the animation, so an entity that is about to interact advances it after interacting
+        if (interactPos == null) updateAnimation(deltaTime);
+        this.tileSize = focus.getTileSize();
+    }
+
+    @Override
+    public void resolveInteractions(DeltaTime deltaTime) {
+        if (interactPos == null) return;
+        tryInteract(interactPos);
+        updateAnimation(deltaTime);
+    }
+
+    private void updateAnimation(DeltaTime deltaTime) {
         animation.update(deltaTime);
         this.texture = animation.getAnimationFrame(rotation);
-        this.tileSize = focus.getTileSize();
     }
 
     protected void move(DeltaTime deltaTime, WindowFocus focus){
+        stepOffsetX = 0;
+        stepOffsetY = 0;
         if (isStationary() || getMovement() < 0) {
             animation.setAnimation(LivingEntityState.IDLE);
             path = null;
@@ -88,19 +100,16 @@ public abstract class LivingEntity extends Entity {
             Path.Step nextStep = path.popStep();
             this.position.setX(nextStep.getX());
             this.position.setY(nextStep.getY());
-            updateRelativePos(focus);
             timeUntilMove = timeBetweenMoves;
             setMovement(getMovement() - 1);
         }
 
         if (!isStationary()) {
             double directionLength = (1 - timeUntilMove / timeBetweenMoves) * tileSize;
-            Vector2D direction = new Vector2D(
-                    path.getX(0) - position.getX(),
-                    path.getY(0) - position.getY());
+            direction.set(path.getX(0) - position.getX(), path.getY(0) - position.getY());
             updateRotation(direction);
-            Vector2D directionAdjusted = Vector2D.getProduct(direction, directionLength);
-            drawPosition = Vector2D.getSum(directionAdjusted, drawPosition);
+            stepOffsetX = direction.getX() * directionLength;
+            stepOffsetY = direction.getY() * directionLength;
         }
     }
 
@@ -144,7 +153,7 @@ public abstract class LivingEntity extends Entity {
         if (tryInteract(mouseRounded)) return true;
 
         finder.setMap(map);
-        path = finder.findPathAdjacent(this, (int)position.getX(), (int)position.getY(),
+        path = finder.findPathAdjacent(this, getTileX(), getTileY(),
                 (int)mouseRounded.getX(), (int)mouseRounded.getY());
 
         if (path == null) {
@@ -155,10 +164,28 @@ public abstract class LivingEntity extends Entity {
         }
     }
 
+    /**
+     * Moves along a path and then interacts with what is at a position, like a right click that has already found its path
+     * @param path path to move along, starting with the entity's own tile
+     * @param interactPosition position to interact with once the entity is next to it
+     * @return false if the entity is dead and can't act
+     */
+    public boolean moveAndInteract(Path path, Vector2D interactPosition) {
+        if (!alive) return false;
+        interactPos = new Vector2D((int)interactPosition.getX(), (int)interactPosition.getY());
+
+        if (tryInteract(interactPos) || path.getLength() < 2) return true;
+
+        this.path = path;
+        animation.setAnimation(LivingEntityState.RUN);
+        return true;
+    }
+
     private boolean tryInteract(Vector2D interactPos){
-        Vector2D diff = Vector2D.getDifference(position, interactPos);
+        double diffX = position.getX() - interactPos.getX();
+        double diffY = position.getY() - interactPos.getY();
 
-        if (diff.getLength() <= 1.42){
+        if (Math.sqrt(diffX * diffX + diffY * diffY) <= 1.42){
             return interact(interactPos);
         }
         return false;
@@ -166,13 +193,11 @@ public abstract class LivingEntity extends Entity {
 
     @Override
     protected void updateRelativePos(WindowFocus focus) {
-        super.updateRelativePos(focus);
+        super.updateRelativePos(focus, stepOffsetX, stepOffsetY);
     }
 
     protected void updateRotation(Vector2D direction){
-        Rotation newRotation = new Rotation(Math.PI / 2);
-        newRotation.addRadians(direction.getAngle().getRadians());
-        this.rotation = newRotation;
+        rotation.setRadians(Math.PI / 2 + direction.getAngleRadians());
     }
 
     protected void drawBanner(Graphics g, JComponent gc){
@@ -195,10 +220,21 @@ public abstract class LivingEntity extends Entity {
         g2.setStroke(oldStroke);
     }
 
+    @Override
+    public boolean getScreenBounds(Rectangle bounds) {
+        if (!super.getScreenBounds(bounds)) return false;
+        bounds.translate((int) characterOffset.getX(), (int) characterOffset.getY());
+        if (flag != null) {
+            bounds.add((int) relativePosition.getX(), (int) relativePosition.getY());
+            bounds.add((int) relativePosition.getX() + flag.getWidth(), (int) relativePosition.getY() + flag.getHeight());
+        }
+        return true;
+    }
+
     @Override
     public void draw(Graphics g, JComponent gc) {
-        Vector2D offsetPosition = Vector2D.getSum(drawPosition, characterOffset);
-        g.drawImage(getTexture(), (int) offsetPosition.getX(), (int) offsetPosition.getY(), gc);
+        g.drawImage(getTexture(), (int) (drawPosition.getX() + characterOffset.getX()),
+                (int) (drawPosition.getY() + characterOffset.getY()), gc);
         drawBanner(g, gc);
     }
 
@@ -212,10 +248,37 @@ public abstract class LivingEntity extends Entity {
 
     public void resetMovement() {this.movement = maxMovement;}
 
+    /**
+     * @return the number of tiles the entity can move each turn
+     */
+    public int getMaxMovement() {
+        return maxMovement;
+    }
+
     public PlayerTeam getPlayerTeam(){
         return team;
     }
 
+    /**
+     * Moves the entity to another team, e.g when it is captured
+     */
+    public void setPlayerTeam(PlayerTeam team){
+        this.team = team;
+        setFlag(team);
+    }
+
+    private void setFlag(PlayerTeam team){
+        switch (team.getTeamColor()){
+            case RED -> flag = Game.imageLoader.getImage(ImageLoader.ImageName.RED_FLAG);
+            case BLUE -> flag = Game.imageLoader.getImage(ImageLoader.ImageName.BLUE_FLAG);
+            default -> flag = Game.imageLoader.getImage(ImageLoader.ImageName.ERROR);
+        }
+    }
+
+    public Character.CharacterEnum getCharacter(){
+        return character;
+    }
+
     /**
      * is the entity stationary, true or false.
      * @return true: the entity is stationary, false: the entity is moving
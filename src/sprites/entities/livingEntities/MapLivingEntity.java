@@ -54,6 +54,16 @@ public class MapLivingEntity extends LivingEntity {
         return result;
     }
 
+    /**
+     * Starts moving towards a tile right away, without first queueing the path for the player to confirm
+     * @return false if there was no path to the tile
+     */
+    public boolean moveTo(PathMap map, PathFinder finder, Vector2D mapPos) {
+        boolean result = super.onMouseClick3(map, finder, mapPos);
+        queuedPath = path;
+        return result;
+    }
+
     @Override
     protected void interactAction(Entity entity) {
         super.interactAction(entity);
@@ -71,6 +81,27 @@ public class MapLivingEntity extends LivingEntity {
         }
     }
 
+    @Override
+    protected void onAdded() {
+        team.addMapLivingEntity(this);
+    }
+
+    @Override
+    protected void onRemoved() {
+        team.removeMapLivingEntity(this);
+    }
+
+    /**
+     * Moves the entity to another team, and to that team's index if the entity is on the map
+     */
+    @Override
+    public void setPlayerTeam(PlayerTeam team) {
+        boolean indexed = this.team.getMapLivingEntities().contains(this);
+        if (indexed) this.team.removeMapLivingEntity(this);
+        super.setPlayerTeam(team);
+        if (indexed) team.addMapLivingEntity(this);
+    }
+
     public Army getArmy() {
         return army;
     }
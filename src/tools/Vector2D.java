@@ -45,6 +45,16 @@ public class Vector2D
 	return new Rotation(Math.atan2(y, x));
     }
 
+    /**
+     * Returns the angle of this vector without creating a rotation, between 0 and 2*pi like a data.Rotation.
+     *
+     * @return Radians.
+     */
+    public double getAngleRadians() {
+	final double radians = Math.atan2(y, x);
+	return radians < 0 ? radians + 2 * Math.PI : radians;
+    }
+
     /**
      * Returns the length of this vector.
      *
@@ -64,6 +74,14 @@ public class Vector2D
 	y = vector.y;
     }
 
+    /**
+     * Sets both coordinates of this vector.
+     */
+    public void set(final double x, final double y) {
+	this.x = x;
+	this.y = y;
+    }
+
     public void setX(final double x) {
 	this.x = x;
     }
@@ -109,6 +127,25 @@ public class Vector2D
 	y += vector.y;
     }
 
+    /**
+     * Subtracts the value of a vector from this vector.
+     *
+     * @param vector
+     */
+    public void subtract(Vector2D vector) {
+	x -= vector.x;
+	y -= vector.y;
+    }
+
+    /**
+     * Multiplies this vector by a factor.
+     *
+     * @param factor
+     */
+    public void multiply(double factor) {
+	x *= factor;
+	y *= factor;
+    }
 
     /**
      * Returns a new vector with identical values.
@@ -131,6 +168,20 @@ public class Vector2D
 	return new Vector2D(vector1.x + vector2.x, vector1.y + vector2.y);
     }
 
+    /**
+     * Stores the sum of the two given vectors in result, which may be one of them.
+     *
+     * @param vector1
+     * @param vector2
+     * @param result  Vector that is overwritten.
+     *
+     * @return result
+     */
+    public static Vector2D getSum(Vector2D vector1, Vector2D vector2, Vector2D result) {
+	result.set(vector1.x + vector2.x, vector1.y + vector2.y);
+	return result;
+    }
+
 	/**
 	 * Returns a new vector of the first vector minus the second vector
 	 *
@@ -143,6 +194,20 @@ public class Vector2D
 		return new Vector2D(vector1.x - vector2.x, vector1.y - vector2.y);
 	}
 
+    /**
+     * Stores the first vector minus the second vector in result, which may be one of them.
+     *
+     * @param vector1 First vector
+     * @param vector2 Second vector
+     * @param result  Vector that is overwritten.
+     *
+     * @return result
+     */
+    public static Vector2D getDifference(Vector2D vector1, Vector2D vector2, Vector2D result) {
+	result.set(vector1.x - vector2.x, vector1.y - vector2.y);
+	return result;
+    }
+
     /**
      * Returns a new vector from a multiplication.
      *
@@ -155,6 +220,20 @@ public class Vector2D
 	return new Vector2D(vector.x * factor, vector.y * factor);
     }
 
+    /**
+     * Stores the product of a vector and a factor in result, which may be the vector itself.
+     *
+     * @param vector
+     * @param factor
+     * @param result Vector that is overwritten.
+     *
+     * @return result
+     */
+    public static Vector2D getProduct(Vector2D vector, double factor, Vector2D result) {
+	result.set(vector.x * factor, vector.y * factor);
+	return result;
+    }
+
     /**
      * Returns a new vector that points from one vector to another.
      *
@@ -229,6 +308,15 @@ public class Vector2D
 	v2 = new Vector2D(12, 20);
 	assert Vector2D.pointAt(v1, v2).equals(new Vector2D(2, 5));
 
+	// Test out-parameter variants, also when the result is one of the arguments
+	Vector2D result = new Vector2D();
+	assert Vector2D.getSum(v1, v2, result).equals(Vector2D.getSum(v1, v2));
+	assert Vector2D.getDifference(v2, v1, result).equals(Vector2D.getDifference(v2, v1));
+	assert Vector2D.getProduct(result, 3, result).equals(new Vector2D(6, 15));
+
+	// Test getAngleRadians
+	assert new Vector2D(0, -1).getAngleRadians() == new Vector2D(0, -1).getAngle().getRadians();
+
 	// Test create from rotation
 	v1 = new Vector2D(new Rotation(0), testLength);
 	assert Math.abs(v1.getX() - testLength) < comparisonPrecision;
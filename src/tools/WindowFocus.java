@@ -7,6 +7,7 @@ public class WindowFocus {
     private final Dimension screenSize;
     private final Dimension gridSize;
     private final int tileSize;
+    private int generation = 0;
 
     /**
      * Controls which part of the map is visible on screen
@@ -28,6 +29,7 @@ public class WindowFocus {
     public void addX(double x) {
         position.addX(x);
         setWithinBoundsX();
+        generation++;
     }
 
     /**
@@ -37,6 +39,7 @@ public class WindowFocus {
     public void addY(double y){
         position.addY(y);
         setWithinBoundsY();
+        generation++;
     }
 
     /**
@@ -47,6 +50,7 @@ public class WindowFocus {
         this.position = new Vector2D((int)position.getX(), (int)position.getY());
         setWithinBoundsX();
         setWithinBoundsY();
+        generation++;
     }
 
     public void setCentre(Vector2D centrePosition){
@@ -87,6 +91,13 @@ public class WindowFocus {
         return position.copy();
     }
 
+    /**
+     * Returns a number which changes every time the position is set, so that users can tell whether the focus has moved
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
     public int getTileSize() {
         return tileSize;
     }
@@ -1,11 +1,15 @@
 package src.tools.aStar;
 
 
+import src.Game;
 import src.sprites.entities.livingEntities.CombatLivingEntity;
-import src.tools.Vector2D;
 import src.tools.aStar.heuristics.ClosestHeuristic;
 import src.tools.aStar.heuristics.ClosestSquaredHeuristic;
 import src.tools.aStar.heuristics.ManhattanHeuristic;
+import src.tools.jfr.PathSearchEvent;
+import src.tools.metrics.Counter;
+import src.tools.metrics.Histogram;
+import src.tools.metrics.Metrics;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -16,6 +20,8 @@ import java.util.Collections;
  */
 
 public class AStarPathFinder implements PathFinder {
+    private static final Histogram SEARCH_TIME = Game.metrics.histogram(Metrics.PATH_SEARCH);
+    private static final Counter NODES_EXPANDED = Game.metrics.counter(Metrics.PATH_NODES_EXPANDED);
     private ArrayList closed;
     private AStarPathFinder.SortedList open;
     private TileBasedMap map;
@@ -23,6 +29,8 @@ public class AStarPathFinder implements PathFinder {
     private AStarPathFinder.Node[][] nodes;
     private boolean allowDiagMovement;
     private AStarHeuristic heuristic;
+    /** Number of nodes that the latest search moved to the closed list */
+    private int nodesExpanded;
 
     public AStarPathFinder(TileBasedMap map, int maxSearchDistance, boolean allowDiagMovement) {
         this(map, maxSearchDistance, allowDiagMovement, new ClosestSquaredHeuristic());
@@ -53,11 +61,12 @@ public class AStarPathFinder implements PathFinder {
     @Override
     public boolean[][] getMovementShade(CombatLivingEntity currentEntity) {
         boolean[][] movementGrid = new boolean[map.getWidthInTiles()][map.getHeightInTiles()];
-        Vector2D position = currentEntity.getPosition();
+        int startX = currentEntity.getTileX();
+        int startY = currentEntity.getTileY();
 
         for (int x = 0; x < movementGrid.length; x++) {
             for (int y = 0; y < movementGrid[x].length; y++) {
-                movementGrid[x][y] = null == findPath(currentEntity, (int)position.getX(), (int)position.getY(), x, y);
+                movementGrid[x][y] = null == findPath(currentEntity, startX, startY, x, y);
             }
         }
 
@@ -72,7 +81,7 @@ public class AStarPathFinder implements PathFinder {
      * @param sy y pos of entity
      * @param tx x pos of target location which area is centred around
      * @param ty y pos of target location which area is centred around
-     * @return the shortest path while still pathing to an adjacent tile or the target tile itself
+     * @return the shortest path while still pathing to an adjacent tile or the target tile itself, or null if there is none
      */
     @Override
     public Path findPathAdjacent(Mover mover, int sx, int sy, int tx, int ty) {
@@ -80,17 +89,39 @@ public class AStarPathFinder implements PathFinder {
         if (nonAdjacentPath != null) return nonAdjacentPath;
 
         ArrayList<Path> possiblePaths = new ArrayList<>();
-        for (int x = tx - 1; x < tx + 1; x++) {
-            for (int y = ty - 1; y < ty + 1; y++) {
+        for (int x = tx - 1; x <= tx + 1; x++) {
+            for (int y = ty - 1; y <= ty + 1; y++) {
                 Path iterPath = findPath(mover, sx, sy, x, y);
                 if (iterPath != null) possiblePaths.add(iterPath);
             }
         }
+        if (possiblePaths.isEmpty()) return null;
         Collections.sort(possiblePaths);
         return possiblePaths.get(0);
     }
 
     public Path findPath(Mover mover, int sx, int sy, int tx, int ty) {
+        final long searchStart = System.nanoTime();
+        PathSearchEvent event = PathSearchEvent.isRecording() ? new PathSearchEvent() : null;
+        if (event != null) event.begin();
+        Path path = search(mover, sx, sy, tx, ty);
+        SEARCH_TIME.recordSince(searchStart);
+        NODES_EXPANDED.add(nodesExpanded);
+        if (event != null) {
+            event.end();
+            event.startX = sx;
+            event.startY = sy;
+            event.targetX = tx;
+            event.targetY = ty;
+            event.nodesExpanded = nodesExpanded;
+            event.pathLength = path == null ? -1 : path.getLength();
+            event.commit();
+        }
+        return path;
+    }
+
+    private Path search(Mover mover, int sx, int sy, int tx, int ty) {
+        nodesExpanded = 0;
         boolean isOutOfRange = tx >= map.getWidthInTiles() || tx < 0 || ty >= map.getHeightInTiles() || ty < 0;
         if (isOutOfRange || this.map.blocked(mover, tx, ty)) {
             return null;
@@ -111,6 +142,7 @@ public class AStarPathFinder implements PathFinder {
 
                 this.removeFromOpen(current);
                 this.addToClosed(current);
+                nodesExpanded++;
 
                 for(int x = -1; x < 2; ++x) {
                     for(int y = -1; y < 2; ++y) {
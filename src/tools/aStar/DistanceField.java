@@ -0,0 +1,371 @@
+package src.tools.aStar;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Distance from every tile of a map to the nearest of a set of source tiles, e.g every collectable or every enemy hero, found with one
+ * multi-source breadth-first search instead of a path search per pair of tiles. Moves go to any of the eight neighbouring free tiles
+ * and cost one each, like the moves of the A* path finder with diagonal movement, for movers that are one tile large. The sources
+ * themselves may be blocked, e.g by the entity that is the source, and are still searched from.
+ * <p>
+ * The field keeps its arrays between computations, and can be repaired when a few tiles or sources have changed instead of being
+ * computed again: the tiles whose shortest path went through a changed tile are reset and searched again from their neighbours, and
+ * tiles that got nearer are searched from the changed tiles outwards.
+ */
+public class DistanceField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    /** Tiles expanded between two calls to the time check of a computation */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private final int width;
+    private final int height;
+    private final int[] distance; // Moves to the nearest source, in row-major order
+    private final int[] parent; // Neighbour that each tile is reached from, -1 for sources and unreached tiles
+    private final int[] origin; // Source that each tile is nearest to, -1 for unreached tiles
+    private final int[] marks; // Equal to epoch for the tiles marked by the current repair
+    private int epoch = 0;
+    private long[] seeds; // Distance in the high half, tile in the low half
+    private long[] queue;
+    private int maxDistance = 0;
+
+    /**
+     * @param width width of the map in tiles
+     * @param height height of the map in tiles
+     */
+    public DistanceField(int width, int height) {
+        this.width = width;
+        this.height = height;
+        distance = new int[width * height];
+        parent = new int[width * height];
+        origin = new int[width * height];
+        marks = new int[width * height];
+        seeds = new long[64];
+        queue = new long[width * height];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(parent, -1);
+        Arrays.fill(origin, -1);
+    }
+
+    /**
+     * Computes the whole field again
+     * @param blocked blocked tiles in row-major order, 1 = blocked, 0 = free
+     * @param sources tiles to measure from, in row-major order
+     * @param sourceCount number of sources in the array
+     * @param maxDistance tiles further away than this are left unreached
+     */
+    public void compute(byte[] blocked, int[] sources, int sourceCount, int maxDistance) {
+        compute(blocked, sources, sourceCount, maxDistance, null);
+    }
+
+    /**
+     * Computes the whole field again, stopping early if it runs out of time. A field that stopped early is the same as one computed
+     * with the smaller maxDistance that it got to, which getMaxDistance answers, so tiles that it didn't reach may still be reachable.
+     * @param blocked blocked tiles in row-major order, 1 = blocked, 0 = free
+     * @param sources tiles to measure from, in row-major order
+     * @param sourceCount number of sources in the array
+     * @param maxDistance tiles further away than this are left unreached
+     * @param outOfTime answers true when the computation has to stop, asked every TIME_CHECK_INTERVAL tiles, or null
+     */
+    public void compute(byte[] blocked, int[] sources, int sourceCount, int maxDistance, BooleanSupplier outOfTime) {
+        this.maxDistance = maxDistance;
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(parent, -1);
+        Arrays.fill(origin, -1);
+        int seedCount = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            final int source = sources[i];
+            if (distance[source] == 0) continue;
+            distance[source] = 0;
+            origin[source] = source;
+            seedCount = addSeed(seedCount, 0, source);
+        }
+        search(blocked, seedCount, outOfTime);
+    }
+
+    /**
+     * Brings the field up to date after a few tiles have been blocked or freed, or sources have been added or removed
+     * @param blocked blocked tiles as they are now
+     * @param sources all sources as they are now
+     * @param sourceCount number of sources in the array
+     * @param changed tiles that have been blocked or freed, and sources that have been added or removed, since the last computation
+     * @param changedCount number of changed tiles in the array
+     */
+    public void repair(byte[] blocked, int[] sources, int sourceCount, int[] changed, int changedCount) {
+        epoch++;
+        // Every tile whose shortest path went through a changed tile has to be searched again. They are found by following the
+        // parents backwards, and collected in the queue, which isn't in use yet.
+        int affectedCount = 0;
+        for (int i = 0; i < changedCount; i++) {
+            final int tile = changed[i];
+            if (distance[tile] == UNREACHABLE || marks[tile] == epoch) continue;
+            marks[tile] = epoch;
+            queue[affectedCount++] = tile;
+        }
+        for (int head = 0; head < affectedCount; head++) {
+            final int tile = (int) queue[head];
+            final int tileX = tile % width;
+            final int tileY = tile / width;
+            for (int y = Math.max(0, tileY - 1); y <= Math.min(height - 1, tileY + 1); y++) {
+                for (int x = Math.max(0, tileX - 1); x <= Math.min(width - 1, tileX + 1); x++) {
+                    final int next = y * width + x;
+                    if (parent[next] != tile || marks[next] == epoch) continue;
+                    marks[next] = epoch;
+                    queue[affectedCount++] = next;
+                }
+            }
+        }
+        for (int i = 0; i < affectedCount; i++) {
+            final int tile = (int) queue[i];
+            distance[tile] = UNREACHABLE;
+            parent[tile] = -1;
+            origin[tile] = -1;
+        }
+
+        // The search starts again from the sources that are new or were reset, from the affected tiles that a neighbour can still
+        // reach, and from the changed tiles, which may have been freed
+        int seedCount = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            final int source = sources[i];
+            if (distance[source] == 0 && origin[source] == source) continue;
+            distance[source] = 0;
+            parent[source] = -1;
+            origin[source] = source;
+            seedCount = addSeed(seedCount, 0, source);
+        }
+        for (int i = 0; i < affectedCount; i++) {
+            seedCount = seedFromNeighbours(blocked, (int) queue[i], seedCount);
+        }
+        for (int i = 0; i < changedCount; i++) {
+            seedCount = seedFromNeighbours(blocked, changed[i], seedCount);
+        }
+        Arrays.sort(seeds, 0, seedCount);
+        search(blocked, seedCount, null);
+    }
+
+    /**
+     * Sets a free tile's distance from its nearest reached neighbour and adds it as a seed, if that is nearer than it is now
+     */
+    private int seedFromNeighbours(byte[] blocked, int tile, int seedCount) {
+        if (blocked[tile] == 1 || distance[tile] == 0) return seedCount;
+        final int tileX = tile % width;
+        final int tileY = tile / width;
+        int nearest = -1;
+        for (int y = Math.max(0, tileY - 1); y <= Math.min(height - 1, tileY + 1); y++) {
+            for (int x = Math.max(0, tileX - 1); x <= Math.min(width - 1, tileX + 1); x++) {
+                final int next = y * width + x;
+                if (distance[next] == UNREACHABLE) continue;
+                if (nearest == -1 || distance[next] < distance[nearest]) nearest = next;
+            }
+        }
+        if (nearest == -1 || distance[nearest] >= maxDistance || distance[nearest] + 1 >= distance[tile]) return seedCount;
+        distance[tile] = distance[nearest] + 1;
+        parent[tile] = nearest;
+        origin[tile] = origin[nearest];
+        return addSeed(seedCount, distance[tile], tile);
+    }
+
+    private int addSeed(int seedCount, int seedDistance, int tile) {
+        if (seedCount == seeds.length) seeds = Arrays.copyOf(seeds, seeds.length * 2);
+        seeds[seedCount] = (long) seedDistance << 32 | tile;
+        return seedCount + 1;
+    }
+
+    /**
+     * Breadth-first search from the seeds, which are sorted by distance. The queue's distances never decrease, so always taking the
+     * nearer of the next seed and the head of the queue visits the tiles in order of distance.
+     * @param outOfTime answers true when the search has to stop, or null
+     */
+    private void search(byte[] blocked, int seedCount, BooleanSupplier outOfTime) {
+        int seed = 0;
+        int head = 0;
+        int tail = 0;
+        int expanded = 0;
+        while (seed < seedCount || head < tail) {
+            final long entry = head == tail || (seed < seedCount && seeds[seed] < queue[head]) ? seeds[seed++] : queue[head++];
+            final int tile = (int) entry;
+            final int tileDistance = (int) (entry >>> 32);
+            // A tile is queued again when a nearer way to it is found, the older entry is skipped
+            if (tileDistance != distance[tile] || tileDistance >= maxDistance) continue;
+            if (outOfTime != null && ++expanded % TIME_CHECK_INTERVAL == 0 && outOfTime.getAsBoolean()) {
+                stopAt(tileDistance, head, tail);
+                return;
+            }
+
+            final int tileX = tile % width;
+            final int tileY = tile / width;
+            for (int y = Math.max(0, tileY - 1); y <= Math.min(height - 1, tileY + 1); y++) {
+                for (int x = Math.max(0, tileX - 1); x <= Math.min(width - 1, tileX + 1); x++) {
+                    final int next = y * width + x;
+                    if (blocked[next] == 1 || distance[next] <= tileDistance + 1) continue;
+                    distance[next] = tileDistance + 1;
+                    parent[next] = tile;
+                    origin[next] = origin[tile];
+                    if (tail == queue.length) {
+                        // Only the entries from head on are still needed
+                        if (head > 0) {
+                            System.arraycopy(queue, head, queue, 0, tail - head);
+                            tail -= head;
+                            head = 0;
+                        } else {
+                            queue = Arrays.copyOf(queue, queue.length * 2);
+                        }
+                    }
+                    queue[tail++] = (long) (tileDistance + 1) << 32 | next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends a search that is expanding the tiles at a distance. All tiles at that distance have been reached, so the field becomes the
+     * one computed with it as maxDistance by forgetting the tiles beyond it, which are all still in the queue.
+     */
+    private void stopAt(int reachedDistance, int head, int tail) {
+        maxDistance = reachedDistance;
+        for (int i = head; i < tail; i++) {
+            final int tile = (int) queue[i];
+            if (distance[tile] == UNREACHABLE || distance[tile] <= reachedDistance) continue;
+            distance[tile] = UNREACHABLE;
+            parent[tile] = -1;
+            origin[tile] = -1;
+        }
+    }
+
+    /**
+     * @return the number of moves from a tile to the nearest source, or UNREACHABLE
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return UNREACHABLE;
+        return distance[y * width + x];
+    }
+
+    /**
+     * Like getDistance, but a tile that is blocked, e.g by the mover standing on it, is measured from its nearest neighbour
+     * @return the number of moves from a tile to the nearest source, or UNREACHABLE
+     */
+    public int getDistanceFrom(int x, int y) {
+        final int own = getDistance(x, y);
+        if (own != UNREACHABLE) return own;
+        int nearest = UNREACHABLE;
+        for (int neighbourY = y - 1; neighbourY <= y + 1; neighbourY++) {
+            for (int neighbourX = x - 1; neighbourX <= x + 1; neighbourX++) {
+                nearest = Math.min(nearest, getDistance(neighbourX, neighbourY));
+            }
+        }
+        return nearest == UNREACHABLE ? UNREACHABLE : nearest + 1;
+    }
+
+    /**
+     * @return the source nearest to a tile as a tile in row-major order, or -1 if the tile isn't reached
+     */
+    public int getNearestSource(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+        return origin[y * width + x];
+    }
+
+    /**
+     * @return a shortest path from the nearest source to a tile, starting with the source like the paths of the path finder, or
+     * null if the tile isn't reached
+     */
+    public Path getPathFromSource(int x, int y) {
+        if (getDistance(x, y) == UNREACHABLE) return null;
+        Path path = new Path();
+        for (int tile = y * width + x; tile != -1; tile = parent[tile]) {
+            path.prependStep(tile % width, tile / width);
+        }
+        return path;
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Tests that repairing a field gives the same distances as computing it again, on random grids with random tiles blocked and
+     * freed and sources moved between repairs, and that a computation stopped early is a smaller field
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        final int width = 60;
+        final int height = 40;
+        final int trials = 300;
+        final int repairsPerTrial = 20;
+        // Fixed seed so that a failure can be reproduced
+        final Random random = new Random(1);
+
+        for (int trial = 0; trial < trials; trial++) {
+            final byte[] blocked = new byte[width * height];
+            for (int tile = 0; tile < blocked.length; tile++) {
+                blocked[tile] = (byte) (random.nextInt(4) == 0 ? 1 : 0);
+            }
+            final int maxDistance = random.nextBoolean() ? UNREACHABLE : 5 + random.nextInt(20);
+            int[] sources = new int[1 + random.nextInt(5)];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = random.nextInt(blocked.length);
+            }
+            final DistanceField repaired = new DistanceField(width, height);
+            repaired.compute(blocked, sources, sources.length, maxDistance);
+
+            for (int repair = 0; repair < repairsPerTrial; repair++) {
+                // Block or free a few tiles, and sometimes move a source
+                final int flips = 1 + random.nextInt(6);
+                final int[] changed = new int[flips + 2];
+                int changedCount = 0;
+                for (int i = 0; i < flips; i++) {
+                    final int tile = random.nextInt(blocked.length);
+                    blocked[tile] ^= 1;
+                    changed[changedCount++] = tile;
+                }
+                if (random.nextInt(4) == 0) {
+                    sources = sources.clone();
+                    final int moved = random.nextInt(sources.length);
+                    changed[changedCount++] = sources[moved];
+                    sources[moved] = random.nextInt(blocked.length);
+                    changed[changedCount++] = sources[moved];
+                }
+                repaired.repair(blocked, sources, sources.length, changed, changedCount);
+
+                final DistanceField computed = new DistanceField(width, height);
+                computed.compute(blocked, sources, sources.length, maxDistance);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        assert repaired.getDistance(x, y) == computed.getDistance(x, y);
+                        final Path path = repaired.getPathFromSource(x, y);
+                        assert path == null || path.getLength() - 1 == repaired.getDistance(x, y);
+                    }
+                }
+            }
+        }
+
+        // Test that a computation that runs out of time is the same as one with the distance it got to as maxDistance
+        final int size = 300;
+        final byte[] blocked = new byte[size * size];
+        for (int tile = 0; tile < blocked.length; tile++) {
+            blocked[tile] = (byte) (random.nextInt(5) == 0 ? 1 : 0);
+        }
+        final int[] sources = {size * size / 2 + size / 2};
+        for (int checks = 1; checks < 20; checks++) {
+            final int[] checksLeft = {checks};
+            final DistanceField stopped = new DistanceField(size, size);
+            stopped.compute(blocked, sources, 1, UNREACHABLE, () -> --checksLeft[0] == 0);
+            assert stopped.getMaxDistance() < UNREACHABLE;
+            final DistanceField computed = new DistanceField(size, size);
+            computed.compute(blocked, sources, 1, stopped.getMaxDistance());
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    assert stopped.getDistance(x, y) == computed.getDistance(x, y);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package src.tools.aStar;
+
+import java.util.Arrays;
+
+/**
+ * The tiles that a mover can reach within a number of moves, found with a breadth-first search. Moves go to any of the eight
+ * neighbouring tiles and cost one each, like the moves of the A* path finder with diagonal movement, so the paths are shortest paths.
+ */
+public class MovementRange {
+    private final int width;
+    private final int height;
+    private final int[] distance; // Moves to each tile in row-major order, -1 if it can't be reached
+    private final int[] parent; // Tile that each reachable tile is reached from, -1 for the start
+    private final int[] reachable; // Reachable tiles in order of distance
+    private final int reachableCount;
+
+    /**
+     * @param map map to move on
+     * @param mover the one who moves, whose size decides which tiles are blocked
+     * @param startX x pos of the mover
+     * @param startY y pos of the mover
+     * @param maxDistance the most moves the mover can make
+     */
+    public MovementRange(TileBasedMap map, Mover mover, int startX, int startY, int maxDistance) {
+        this.width = map.getWidthInTiles();
+        this.height = map.getHeightInTiles();
+        distance = new int[width * height];
+        parent = new int[width * height];
+        reachable = new int[width * height];
+        Arrays.fill(distance, -1);
+        final int moverWidth = (int) Math.ceil(mover.getSize().getX());
+        final int moverHeight = (int) Math.ceil(mover.getSize().getY());
+
+        // The queue of the search is the list of reachable tiles itself
+        int count = 0;
+        final int start = startY * width + startX;
+        distance[start] = 0;
+        parent[start] = -1;
+        reachable[count++] = start;
+        for (int head = 0; head < count; head++) {
+            final int current = reachable[head];
+            if (distance[current] == maxDistance) break;
+            final int currentX = current % width;
+            final int currentY = current / width;
+            for (int x = -1; x < 2; x++) {
+                for (int y = -1; y < 2; y++) {
+                    final int nextX = currentX + x;
+                    final int nextY = currentY + y;
+                    if (nextX < 0 || nextY < 0 || nextX + moverWidth > width || nextY + moverHeight > height) continue;
+                    final int next = nextY * width + nextX;
+                    if (distance[next] != -1 || map.blocked(mover, nextX, nextY)) continue;
+                    distance[next] = distance[current] + 1;
+                    parent[next] = current;
+                    reachable[count++] = next;
+                }
+            }
+        }
+        reachableCount = count;
+    }
+
+    /**
+     * @return the number of moves to the tile, or -1 if it can't be reached
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+        return distance[y * width + x];
+    }
+
+    public boolean isReachable(int x, int y) {
+        return getDistance(x, y) != -1;
+    }
+
+    /**
+     * @return the number of reachable tiles, the start included
+     */
+    public int getReachableCount() {
+        return reachableCount;
+    }
+
+    /**
+     * @param index from 0 to getReachableCount, tiles nearer to the start first
+     * @return x pos of a reachable tile
+     */
+    public int getReachableX(int index) {
+        return reachable[index] % width;
+    }
+
+    /**
+     * @param index from 0 to getReachableCount, tiles nearer to the start first
+     * @return y pos of a reachable tile
+     */
+    public int getReachableY(int index) {
+        return reachable[index] / width;
+    }
+
+    /**
+     * @return a shortest path from the start to the tile, starting with the start like the paths of the path finder, or null if the
+     * tile can't be reached
+     */
+    public Path getPath(int x, int y) {
+        if (!isReachable(x, y)) return null;
+        Path path = new Path();
+        for (int tile = y * width + x; tile != -1; tile = parent[tile]) {
+            path.prependStep(tile % width, tile / width);
+        }
+        return path;
+    }
+}
@@ -9,13 +9,17 @@ import java.awt.*;
  */
 public class PathMap implements TileBasedMap{
     private final Dimension mapSize;
-    private final int[][] terrain;
-    private final boolean[][] visited;
-
-    public PathMap(Dimension mapSize, int[][] terrain){
+    private final byte[] terrain;
+    private final boolean[] visited;
+
+    /**
+     * @param mapSize size of the map in tiles
+     * @param terrain blocked tiles in row-major order, 1 = blocked, 0 = free
+     */
+    public PathMap(Dimension mapSize, byte[] terrain){
         this.mapSize = mapSize;
         this.terrain = terrain;
-        this.visited = new boolean[mapSize.width][mapSize.height];
+        this.visited = new boolean[mapSize.width * mapSize.height];
     }
 
     @Override
@@ -30,15 +34,16 @@ public class PathMap implements TileBasedMap{
 
     @Override
     public void pathFinderVisited(int x, int y) {
-        this.visited[x][y] = true;
+        this.visited[y * mapSize.width + x] = true;
     }
 
     @Override
     public boolean blocked(Mover var1, int x, int y) {
         Vector2D size = var1.getSize();
-        for (int sizeX = 0; sizeX < size.getX(); sizeX++) {
-            for (int sizeY = 0; sizeY < size.getY(); sizeY++) {
-                if (this.terrain[x + sizeX][y + sizeY] == 1) return true;
+        for (int sizeY = 0; sizeY < size.getY(); sizeY++) {
+            int row = (y + sizeY) * mapSize.width + x;
+            for (int sizeX = 0; sizeX < size.getX(); sizeX++) {
+                if (this.terrain[row + sizeX] == 1) return true;
             }
         }
         return false;
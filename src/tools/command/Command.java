@@ -0,0 +1,149 @@
+package src.tools.command;
+
+import src.player.PlayerTeamColor;
+import src.tools.Vector2D;
+import src.tools.input.KeyEvent;
+
+/**
+ * Class for representing a single player action, or the passing of one frame, in a form that can be written to and read from a
+ * command log. Commands are created through the static factory methods, and only the fields relevant to the type are set.
+ */
+public class Command
+{
+    private final CommandType type;
+    private Vector2D position = null;
+    private Vector2D target = null;
+    private int button = 0;
+    private KeyEvent keyEvent = null;
+    private PlayerTeamColor teamColor = null;
+    private long nanoSeconds = 0;
+
+    private Command(final CommandType type) {
+        this.type = type;
+    }
+
+    /**
+     * A frame passing, i.e one update of the simulation with the given delta time.
+     */
+    public static Command frame(long nanoSeconds) {
+        Command command = new Command(CommandType.FRAME);
+        command.nanoSeconds = nanoSeconds;
+        return command;
+    }
+
+    /**
+     * A mouse click on the GameMap or on the GameCombat. Where it lands depends on the size of the window and the focus, so it is
+     * turned into a tile click when it is executed, and only command logs older than version 5 contain screen clicks.
+     * @param type MAP_CLICK or COMBAT_CLICK
+     * @param position position of the mouse on the component, measured in pixels
+     * @param button mouse button that was pressed
+     */
+    public static Command click(CommandType type, Vector2D position, int button) {
+        assert type == CommandType.MAP_CLICK || type == CommandType.COMBAT_CLICK;
+        Command command = new Command(type);
+        command.position = new Vector2D((int) position.getX(), (int) position.getY());
+        command.button = button;
+        return command;
+    }
+
+    /**
+     * A mouse click on a position of the map or of the battlefield, which is the same whatever the window size.
+     * @param type MAP_TILE_CLICK or COMBAT_TILE_CLICK
+     * @param position position that was clicked, measured in tiles
+     * @param button mouse button that was pressed
+     */
+    public static Command tileClick(CommandType type, Vector2D position, int button) {
+        assert type == CommandType.MAP_TILE_CLICK || type == CommandType.COMBAT_TILE_CLICK;
+        Command command = new Command(type);
+        command.position = position.copy();
+        command.button = button;
+        return command;
+    }
+
+    /**
+     * Centres the map focus on a position, e.g when the minimap is clicked.
+     * @param position new centre of the map focus, measured in tiles
+     */
+    public static Command mapFocus(Vector2D position) {
+        Command command = new Command(CommandType.MAP_FOCUS);
+        command.position = position.copy();
+        return command;
+    }
+
+    public static Command key(KeyEvent keyEvent) {
+        Command command = new Command(CommandType.KEY);
+        command.keyEvent = keyEvent;
+        return command;
+    }
+
+    /**
+     * Marks that a team ended its turn. It is a consequence of other commands and is only used to detect desyncs when replaying.
+     */
+    public static Command endTurn(PlayerTeamColor teamColor) {
+        Command command = new Command(CommandType.END_TURN);
+        command.teamColor = teamColor;
+        return command;
+    }
+
+    /**
+     * Orders a unit of the current player on the map to a tile, the way a computer player moves its units.
+     * @param unitTile tile that the unit stands on
+     * @param targetTile tile that the unit moves to, or interacts with if something is there
+     */
+    public static Command unitOrder(Vector2D unitTile, Vector2D targetTile) {
+        Command command = new Command(CommandType.UNIT_ORDER);
+        command.position = new Vector2D((int) unitTile.getX(), (int) unitTile.getY());
+        command.target = new Vector2D((int) targetTile.getX(), (int) targetTile.getY());
+        return command;
+    }
+
+    /**
+     * Ends the turn of the current player, the way a computer player ends its turn.
+     * @param teamColor team whose turn it is, used to detect desyncs when replaying
+     */
+    public static Command passTurn(PlayerTeamColor teamColor) {
+        Command command = new Command(CommandType.PASS_TURN);
+        command.teamColor = teamColor;
+        return command;
+    }
+
+    /**
+     * Moves the stack whose turn it is in combat to a tile and has it interact with another, the way a computer player fights.
+     * @param moveTile tile that the stack moves to, within its movement
+     * @param targetTile tile of the enemy that the stack attacks once it has moved, or moveTile to only move
+     */
+    public static Command combatOrder(Vector2D moveTile, Vector2D targetTile) {
+        Command command = new Command(CommandType.COMBAT_ORDER);
+        command.position = new Vector2D((int) moveTile.getX(), (int) moveTile.getY());
+        command.target = new Vector2D((int) targetTile.getX(), (int) targetTile.getY());
+        return command;
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    public Vector2D getPosition() {
+        return position.copy();
+    }
+
+    public Vector2D getTarget() {
+        return target.copy();
+    }
+
+    public int getButton() {
+        return button;
+    }
+
+    public KeyEvent getKeyEvent() {
+        return keyEvent;
+    }
+
+    public PlayerTeamColor getTeamColor() {
+        return teamColor;
+    }
+
+    public long getNanoSeconds() {
+        return nanoSeconds;
+    }
+}
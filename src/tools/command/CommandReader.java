@@ -0,0 +1,122 @@
+package src.tools.command;
+
+import src.player.PlayerTeamColor;
+import src.tools.Vector2D;
+import src.tools.input.Key;
+import src.tools.input.KeyEvent;
+import src.tools.input.KeyState;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Class that reads the commands of a command log written by a CommandWriter, in the order they were written.
+ */
+public class CommandReader implements Closeable
+{
+    private final DataInputStream in;
+    private final long seed;
+    private final String mapFile;
+    private long tick = 0;
+
+    public CommandReader(final String fileName) throws IOException {
+	in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+	if (in.readInt() != CommandWriter.MAGIC) {
+	    in.close();
+	    throw new IOException(fileName + " is not a command log");
+	}
+	final byte version = in.readByte();
+	// Versions 3 to 5 only added command types, so older logs are read the same way. Their clicks are in screen pixels, and only
+	// replay the same on a window of the same size.
+	if (version < 2 || version > CommandWriter.VERSION) {
+	    in.close();
+	    throw new IOException("Unsupported command log version " + version);
+	}
+	seed = in.readLong();
+	final String mapName = in.readUTF();
+	mapFile = mapName.isEmpty() ? null : mapName;
+    }
+
+    /**
+     * Returns the seed of the random generator of the recorded game.
+     */
+    public long getSeed() {
+	return seed;
+    }
+
+    /**
+     * Returns the map file of the recorded game, or null if it was played on the default map.
+     */
+    public String getMapFile() {
+	return mapFile;
+    }
+
+    /**
+     * Returns the tick of the last command returned by next().
+     */
+    public long getTick() {
+	return tick;
+    }
+
+    /**
+     * Reads the next command from the log.
+     *
+     * @return The next command, or null if the end of the log has been reached.
+     */
+    public Command next() throws IOException {
+	final int first = in.read();
+	if (first < 0) return null;
+	tick += readVarLong(first);
+
+	final CommandType type = CommandType.values()[in.readUnsignedByte()];
+	return switch (type) {
+	    case FRAME -> Command.frame(readVarLong(in.readUnsignedByte()));
+	    case MAP_CLICK, COMBAT_CLICK -> {
+		final long x = readVarLong(in.readUnsignedByte());
+		final long y = readVarLong(in.readUnsignedByte());
+		yield Command.click(type, new Vector2D(x, y), in.readUnsignedByte());
+	    }
+	    case MAP_FOCUS -> Command.mapFocus(new Vector2D(in.readDouble(), in.readDouble()));
+	    case KEY -> Command.key(new KeyEvent(Key.values()[in.readUnsignedByte()], KeyState.values()[in.readUnsignedByte()]));
+	    case END_TURN -> Command.endTurn(PlayerTeamColor.values()[in.readUnsignedByte()]);
+	    case UNIT_ORDER -> {
+		final Vector2D unitTile = new Vector2D(readVarLong(in.readUnsignedByte()), readVarLong(in.readUnsignedByte()));
+		final Vector2D targetTile = new Vector2D(readVarLong(in.readUnsignedByte()), readVarLong(in.readUnsignedByte()));
+		yield Command.unitOrder(unitTile, targetTile);
+	    }
+	    case PASS_TURN -> Command.passTurn(PlayerTeamColor.values()[in.readUnsignedByte()]);
+	    case COMBAT_ORDER -> {
+		final Vector2D moveTile = new Vector2D(readVarLong(in.readUnsignedByte()), readVarLong(in.readUnsignedByte()));
+		final Vector2D targetTile = new Vector2D(readVarLong(in.readUnsignedByte()), readVarLong(in.readUnsignedByte()));
+		yield Command.combatOrder(moveTile, targetTile);
+	    }
+	    case MAP_TILE_CLICK, COMBAT_TILE_CLICK -> {
+		final Vector2D position = new Vector2D(in.readDouble(), in.readDouble());
+		yield Command.tileClick(type, position, in.readUnsignedByte());
+	    }
+	};
+    }
+
+    @Override public void close() throws IOException {
+	in.close();
+    }
+
+    /**
+     * Reads a varint written by CommandWriter, given its first byte.
+     */
+    private long readVarLong(int current) throws IOException {
+	long value = 0;
+	int shift = 0;
+	while ((current & 0x80) != 0) {
+	    value |= (long) (current & 0x7F) << shift;
+	    shift += 7;
+	    current = in.readUnsignedByte();
+	    if (shift > 63) throw new EOFException("Malformed varint in command log");
+	}
+	return value | ((long) current << shift);
+    }
+}
@@ -0,0 +1,9 @@
+package src.tools.command;
+
+/**
+ * Enum with the different kinds of commands that can be recorded in and replayed from a command log.
+ */
+public enum CommandType
+{
+    FRAME, MAP_CLICK, COMBAT_CLICK, MAP_FOCUS, KEY, END_TURN, UNIT_ORDER, PASS_TURN, COMBAT_ORDER, MAP_TILE_CLICK, COMBAT_TILE_CLICK
+}
@@ -0,0 +1,95 @@
+package src.tools.command;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Class that writes commands to a compact binary command log.
+ *
+ * The log starts with a header (magic number, format version, the seed of the game's random generator and the name of the map file,
+ * empty for the default map) followed by one record
+ * per command. Each record is the number of ticks since the previous record as a varint, the ordinal of the CommandType as a byte and
+ * then the command's payload. Every tick is closed by a FRAME record which holds the delta time of that tick.
+ */
+public class CommandWriter implements Closeable
+{
+    /** "HOMR" */
+    public static final int MAGIC = 0x484F4D52;
+    public static final byte VERSION = 5;
+
+    private final DataOutputStream out;
+    private long lastTick = 0;
+
+    public CommandWriter(final String fileName, final long seed, final String mapFile) throws IOException {
+	out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+	out.writeInt(MAGIC);
+	out.writeByte(VERSION);
+	out.writeLong(seed);
+	out.writeUTF(mapFile == null ? "" : mapFile);
+    }
+
+    /**
+     * Appends a command to the log.
+     *
+     * @param tick    Tick during which the command was executed. Must never be lower than the tick of the previous command.
+     * @param command Command to write.
+     */
+    public void write(final long tick, final Command command) throws IOException {
+	assert tick >= lastTick;
+	writeVarLong(tick - lastTick);
+	lastTick = tick;
+
+	out.writeByte(command.getType().ordinal());
+	switch (command.getType()) {
+	    case FRAME -> writeVarLong(command.getNanoSeconds());
+	    case MAP_CLICK, COMBAT_CLICK -> {
+		writeVarLong((long) command.getPosition().getX());
+		writeVarLong((long) command.getPosition().getY());
+		out.writeByte(command.getButton());
+	    }
+	    case MAP_FOCUS -> {
+		out.writeDouble(command.getPosition().getX());
+		out.writeDouble(command.getPosition().getY());
+	    }
+	    case MAP_TILE_CLICK, COMBAT_TILE_CLICK -> {
+		out.writeDouble(command.getPosition().getX());
+		out.writeDouble(command.getPosition().getY());
+		out.writeByte(command.getButton());
+	    }
+	    case KEY -> {
+		out.writeByte(command.getKeyEvent().getKey().ordinal());
+		out.writeByte(command.getKeyEvent().getKeyState().ordinal());
+	    }
+	    case END_TURN, PASS_TURN -> out.writeByte(command.getTeamColor().ordinal());
+	    case UNIT_ORDER, COMBAT_ORDER -> {
+		writeVarLong((long) command.getPosition().getX());
+		writeVarLong((long) command.getPosition().getY());
+		writeVarLong((long) command.getTarget().getX());
+		writeVarLong((long) command.getTarget().getY());
+	    }
+	}
+    }
+
+    public void flush() throws IOException {
+	out.flush();
+    }
+
+    @Override public void close() throws IOException {
+	out.close();
+    }
+
+    /**
+     * Writes a non-negative long using 7 bits per byte, so small values such as tick deltas and mouse positions take 1-2 bytes.
+     */
+    private void writeVarLong(long value) throws IOException {
+	assert value >= 0;
+	while ((value & ~0x7FL) != 0) {
+	    out.writeByte((int) ((value & 0x7F) | 0x80));
+	    value >>>= 7;
+	}
+	out.writeByte((int) value);
+    }
+}
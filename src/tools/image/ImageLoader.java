@@ -5,6 +5,7 @@ import src.sprites.entities.livingEntities.AnimationComponent;
 import src.sprites.entities.livingEntities.Character;
 import src.sprites.entities.livingEntities.LivingEntityState;
 import src.tools.JsonReader;
+import src.tools.jfr.AssetLoadedEvent;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -177,7 +178,19 @@ public class ImageLoader
      * @throws IOException image not found
      */
     private static BufferedImage loadImage(URL url) throws IOException {
-        return ImageIO.read(url);
+        AssetLoadedEvent event = AssetLoadedEvent.isRecording() ? new AssetLoadedEvent() : null;
+        if (event != null) event.begin();
+        BufferedImage image = ImageIO.read(url);
+        if (event != null) {
+            event.end();
+            event.resource = url.toString();
+            if (image != null) {
+                event.width = image.getWidth();
+                event.height = image.getHeight();
+            }
+            event.commit();
+        }
+        return image;
     }
 
     /**
@@ -33,6 +33,9 @@ public class KeyHandler
 	addInputAction(java.awt.event.KeyEvent.VK_D, Key.RIGHT);
 	addInputAction(java.awt.event.KeyEvent.VK_ESCAPE, Key.ESC);
 	addInputAction(java.awt.event.KeyEvent.VK_E, Key.E);
+	addInputAction(java.awt.event.KeyEvent.VK_F5, Key.QUICKSAVE);
+	addInputAction(java.awt.event.KeyEvent.VK_F9, Key.QUICKLOAD);
+	addInputAction(java.awt.event.KeyEvent.VK_F3, Key.PROFILER);
     }
 
     /**
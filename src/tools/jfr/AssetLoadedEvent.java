@@ -0,0 +1,33 @@
+package src.tools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for loading one image asset
+ */
+@Name("homm.AssetLoaded")
+@Label("Asset Loaded")
+@Category({"Homm", "Assets"})
+public class AssetLoadedEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(AssetLoadedEvent.class);
+
+    @Label("Resource")
+    public String resource;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    /**
+     * Returns whether a recording wants these events, so that they aren't even created when it doesn't
+     */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
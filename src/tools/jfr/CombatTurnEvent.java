@@ -0,0 +1,32 @@
+package src.tools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for the turn of one stack in combat, from when the turn starts until it ends
+ */
+@Name("homm.CombatTurn")
+@Label("Combat Turn")
+@Category({"Homm", "Combat"})
+@StackTrace(false)
+public class CombatTurnEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(CombatTurnEvent.class);
+
+    @Label("Character")
+    public String character;
+
+    @Label("Stack Size")
+    public int stackSize;
+
+    /**
+     * Returns whether a recording wants these events, so that they aren't even created when it doesn't
+     */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,40 @@
+package src.tools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one iteration of the game loop, not counting the sleep at its end
+ */
+@Name("homm.Frame")
+@Label("Frame")
+@Category({"Homm", "Game Loop"})
+@StackTrace(false)
+public class FrameEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(FrameEvent.class);
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Update Time")
+    @Timespan
+    public long updateTime;
+
+    @Label("Paint Time")
+    @Description("Duration of the latest finished paint. Painting happens on the event dispatch thread, after the frame's update.")
+    @Timespan
+    public long paintTime;
+
+    /**
+     * Returns whether a recording wants these events, so that they aren't even created when it doesn't
+     */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
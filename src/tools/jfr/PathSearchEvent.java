@@ -0,0 +1,44 @@
+package src.tools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one A* path search
+ */
+@Name("homm.PathSearch")
+@Label("Path Search")
+@Category({"Homm", "Pathfinding"})
+public class PathSearchEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(PathSearchEvent.class);
+
+    @Label("Start X")
+    public int startX;
+
+    @Label("Start Y")
+    public int startY;
+
+    @Label("Target X")
+    public int targetX;
+
+    @Label("Target Y")
+    public int targetY;
+
+    @Label("Nodes Expanded")
+    public int nodesExpanded;
+
+    @Label("Path Length")
+    @Description("Number of steps in the found path, including the start, or -1 if no path was found")
+    public int pathLength;
+
+    /**
+     * Returns whether a recording wants these events, so that they aren't even created when it doesn't
+     */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,22 @@
+package src.tools.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metric which counts how many times something has happened
+ */
+public class Counter {
+    private final AtomicLong count = new AtomicLong();
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void add(long amount) {
+        count.addAndGet(amount);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,16 @@
+package src.tools.metrics;
+
+/**
+ * Metric which holds the latest value of something, for example the number of entities
+ */
+public class Gauge {
+    private volatile long value;
+
+    public void set(long value) {
+        this.value = value;
+    }
+
+    public long getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package src.tools.metrics;
+
+/**
+ * Names of the metrics that the game records
+ */
+public final class Metrics {
+    /** Time between the starts of two frames, in nanoseconds */
+    public static final String FRAME_TIME = "frame.time";
+    /** How late each frame started compared to its scheduled start, in nanoseconds */
+    public static final String FRAME_JITTER = "frame.jitter";
+    /** Time spent updating the simulation each frame, in nanoseconds */
+    public static final String FRAME_UPDATE = "frame.update";
+    /** Time spent painting a game component, in nanoseconds */
+    public static final String FRAME_PAINT = "frame.paint";
+    /** Duration of the latest finished paint, in nanoseconds */
+    public static final String LAST_PAINT = "frame.lastPaint";
+    public static final String MAP_UPDATE = "map.update";
+    public static final String COMBAT_UPDATE = "combat.update";
+    /** Duration of each path search, in nanoseconds */
+    public static final String PATH_SEARCH = "path.search";
+    /** Nodes that path searches have moved to the closed list, summed over all searches */
+    public static final String PATH_NODES_EXPANDED = "path.nodesExpanded";
+    /** CPU time of each unit search of the map AI, in nanoseconds */
+    public static final String AI_SEARCH = "ai.search";
+    /** Time that the combat AI took to choose each action, in nanoseconds */
+    public static final String AI_COMBAT_DECISION = "ai.combatDecision";
+    /** Bytes allocated by the game loop thread since it started, or -1 if the JVM can't measure it */
+    public static final String GAME_LOOP_ALLOCATED_BYTES = "gameLoop.allocatedBytes";
+
+    private Metrics() {}
+}
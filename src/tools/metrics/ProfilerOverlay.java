@@ -0,0 +1,109 @@
+package src.tools.metrics;
+
+import src.tools.time.DeltaTime;
+
+import java.awt.*;
+
+/**
+ * On-screen overlay which shows where the frame time goes. The shown numbers are recalculated every REFRESH_INTERVAL from the
+ * values recorded since the last refresh, the histograms are reset after each refresh.
+ */
+public class ProfilerOverlay {
+    private static final long REFRESH_INTERVAL = DeltaTime.NANO_SECONDS_IN_SECOND / 2;
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 14);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+    private static final int PADDING = 6;
+    private final Histogram frameTime;
+    private final Histogram frameJitter;
+    private final Histogram frameUpdate;
+    private final Histogram framePaint;
+    private final Histogram mapUpdate;
+    private final Histogram combatUpdate;
+    private final Histogram pathSearch;
+    private final Counter nodesExpanded;
+    private final Gauge allocatedBytes;
+    private volatile boolean visible = false;
+    private String[] lines = new String[0];
+    private long lastRefresh = 0;
+    private long lastAllocatedBytes = -1;
+    private long lastNodesExpanded = 0;
+
+    public ProfilerOverlay(MetricsRegistry registry) {
+        frameTime = registry.histogram(Metrics.FRAME_TIME);
+        frameJitter = registry.histogram(Metrics.FRAME_JITTER);
+        frameUpdate = registry.histogram(Metrics.FRAME_UPDATE);
+        framePaint = registry.histogram(Metrics.FRAME_PAINT);
+        mapUpdate = registry.histogram(Metrics.MAP_UPDATE);
+        combatUpdate = registry.histogram(Metrics.COMBAT_UPDATE);
+        pathSearch = registry.histogram(Metrics.PATH_SEARCH);
+        nodesExpanded = registry.counter(Metrics.PATH_NODES_EXPANDED);
+        allocatedBytes = registry.gauge(Metrics.GAME_LOOP_ALLOCATED_BYTES);
+    }
+
+    public void toggle() {
+        visible = !visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Draws the overlay in the top left corner, if it is visible
+     */
+    public void draw(Graphics g) {
+        if (!visible) return;
+        final long now = System.nanoTime();
+        if (now - lastRefresh >= REFRESH_INTERVAL) {
+            refresh(now - lastRefresh);
+            lastRefresh = now;
+        }
+
+        g.setFont(FONT);
+        FontMetrics fontMetrics = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fontMetrics.stringWidth(line));
+        }
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width + 2 * PADDING, lines.length * fontMetrics.getHeight() + 2 * PADDING);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], PADDING, PADDING + i * fontMetrics.getHeight() + fontMetrics.getAscent());
+        }
+    }
+
+    private void refresh(long intervalNanos) {
+        final double intervalSeconds = intervalNanos / (double) DeltaTime.NANO_SECONDS_IN_SECOND;
+        final long bytes = allocatedBytes.getValue();
+        String allocationRate = "n/a";
+        if (bytes >= 0 && lastAllocatedBytes >= 0) {
+            allocationRate = String.format("%.2f MB/s", (bytes - lastAllocatedBytes) / intervalSeconds / 1.0e6);
+        }
+        lastAllocatedBytes = bytes;
+        final long nodes = nodesExpanded.getCount();
+        final double nodeRate = (nodes - lastNodesExpanded) / intervalSeconds;
+        lastNodesExpanded = nodes;
+
+        lines = new String[]{
+                String.format("FPS    %.1f", frameTime.getCount() / intervalSeconds),
+                "frame  " + describe(frameTime),
+                "jitter " + describe(frameJitter),
+                "update " + describe(frameUpdate),
+                "  map  " + describe(mapUpdate),
+                "  cmbt " + describe(combatUpdate),
+                "paint  " + describe(framePaint),
+                "path   " + describe(pathSearch) + String.format(" x%d", pathSearch.getCount()),
+                String.format("  nodes %.0f/s", nodeRate),
+                "alloc  " + allocationRate,
+        };
+        for (Histogram histogram : new Histogram[]{frameTime, frameJitter, frameUpdate, framePaint, mapUpdate, combatUpdate, pathSearch}) {
+            histogram.reset();
+        }
+    }
+
+    private static String describe(Histogram histogram) {
+        return String.format("p50 %6.2f ms  p99 %6.2f ms", histogram.getValueAtPercentile(50) / 1.0e6,
+                histogram.getValueAtPercentile(99) / 1.0e6);
+    }
+}
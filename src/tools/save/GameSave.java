@@ -0,0 +1,117 @@
+package src.tools.save;
+
+import src.map.GameMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Class that saves the game state to, and loads it from, a binary save file.
+ *
+ * A save starts with an uncompressed header (magic number, format version and flags). The rest of the file is the game state as
+ * written by GameMap.save, optionally deflate compressed.
+ */
+public class GameSave
+{
+    /** "HOMS" */
+    private static final int MAGIC = 0x484F4D53;
+    public static final byte VERSION = 2;
+    private static final byte FLAG_COMPRESSED = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + 2;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Saves the game state. The save is written to a temporary file next to the file and then moved over it, so the old save is only
+     * replaced by a complete one.
+     *
+     * @param gameMap  Map to save.
+     * @param file     File to save to, it is overwritten if it exists.
+     * @param compress Whether the game state should be compressed.
+     */
+    public static void save(GameMap gameMap, Path file, boolean compress) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(gameMap, temporary, compress);
+            // On disk before it replaces the old save
+            try (FileChannel written = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                written.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void write(GameMap gameMap, Path file, boolean compress) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put(VERSION).put(compress ? FLAG_COMPRESSED : 0).flip();
+            while (header.hasRemaining()) channel.write(header);
+
+            WritableByteChannel body = channel;
+            if (compress) {
+                body = Channels.newChannel(new DeflaterOutputStream(Channels.newOutputStream(channel), deflater, STREAM_BUFFER_SIZE));
+            }
+            try (SaveWriter out = new SaveWriter(body)) {
+                gameMap.save(out);
+            }
+        } finally {
+            channel.close();
+            if (deflater != null) deflater.end();
+        }
+    }
+
+    /**
+     * Loads a saved game state into the map.
+     *
+     * @param gameMap Map to load into.
+     * @param file    File to load from.
+     */
+    public static void load(GameMap gameMap, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        Inflater inflater = null;
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) throw new IOException(file + " is not a save file");
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException(file + " is not a save file");
+            byte version = header.get();
+            if (version != VERSION) throw new IOException("Unsupported save version " + version);
+            boolean compressed = (header.get() & FLAG_COMPRESSED) != 0;
+
+            ReadableByteChannel body = channel;
+            if (compressed) {
+                inflater = new Inflater();
+                body = Channels.newChannel(new InflaterInputStream(Channels.newInputStream(channel), inflater, STREAM_BUFFER_SIZE));
+            }
+            try (SaveReader in = new SaveReader(body)) {
+                gameMap.load(in);
+            }
+        } finally {
+            channel.close();
+            if (inflater != null) inflater.end();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package src.tools.save;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Class for reading primitive values written by a SaveWriter from a channel through a fixed size buffer.
+ */
+public class SaveReader implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    public SaveReader(final ReadableByteChannel channel) {
+	this.channel = channel;
+	buffer.limit(0);
+    }
+
+    public byte readByte() throws IOException {
+	ensureAvailable(Byte.BYTES);
+	return buffer.get();
+    }
+
+    public boolean readBoolean() throws IOException {
+	return readByte() != 0;
+    }
+
+    public int readInt() throws IOException {
+	ensureAvailable(Integer.BYTES);
+	return buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+	ensureAvailable(Long.BYTES);
+	return buffer.getLong();
+    }
+
+    public double readDouble() throws IOException {
+	ensureAvailable(Double.BYTES);
+	return buffer.getDouble();
+    }
+
+    /**
+     * Reads exactly length bytes into the given array.
+     */
+    public void readBytes(final byte[] bytes, int offset, int length) throws IOException {
+	while (length > 0) {
+	    if (!buffer.hasRemaining()) ensureAvailable(1);
+	    final int chunk = Math.min(length, buffer.remaining());
+	    buffer.get(bytes, offset, chunk);
+	    offset += chunk;
+	    length -= chunk;
+	}
+    }
+
+    /**
+     * Reads an ordinal written with writeByte and checks that it is within bounds.
+     *
+     * @param values The values of the enum.
+     */
+    public <T extends Enum<T>> T readEnum(final T[] values) throws IOException {
+	final int ordinal = readByte() & 0xFF;
+	if (ordinal >= values.length) {
+	    throw new IOException("Corrupt save, ordinal " + ordinal + " out of range");
+	}
+	return values[ordinal];
+    }
+
+    @Override public void close() throws IOException {
+	channel.close();
+    }
+
+    /**
+     * Reads from the channel until at least the given number of bytes are buffered.
+     */
+    private void ensureAvailable(final int bytes) throws IOException {
+	if (buffer.remaining() >= bytes) return;
+	buffer.compact();
+	while (buffer.position() < bytes) {
+	    if (channel.read(buffer) < 0) {
+		throw new EOFException("Unexpected end of save");
+	    }
+	}
+	buffer.flip();
+    }
+}
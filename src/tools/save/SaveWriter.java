@@ -0,0 +1,81 @@
+package src.tools.save;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Class for writing primitive values to a channel through a fixed size buffer. The buffer is written to the channel whenever it is
+ * full, so arbitrarily large game states can be saved without building the whole save in memory first.
+ */
+public class SaveWriter implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    public SaveWriter(final WritableByteChannel channel) {
+	this.channel = channel;
+    }
+
+    public void writeByte(final int value) throws IOException {
+	ensureRemaining(Byte.BYTES);
+	buffer.put((byte) value);
+    }
+
+    public void writeBoolean(final boolean value) throws IOException {
+	writeByte(value ? 1 : 0);
+    }
+
+    public void writeInt(final int value) throws IOException {
+	ensureRemaining(Integer.BYTES);
+	buffer.putInt(value);
+    }
+
+    public void writeLong(final long value) throws IOException {
+	ensureRemaining(Long.BYTES);
+	buffer.putLong(value);
+    }
+
+    public void writeDouble(final double value) throws IOException {
+	ensureRemaining(Double.BYTES);
+	buffer.putDouble(value);
+    }
+
+    /**
+     * Writes a range of bytes without any length prefix.
+     */
+    public void writeBytes(final byte[] bytes, int offset, int length) throws IOException {
+	while (length > 0) {
+	    if (!buffer.hasRemaining()) flush();
+	    final int chunk = Math.min(length, buffer.remaining());
+	    buffer.put(bytes, offset, chunk);
+	    offset += chunk;
+	    length -= chunk;
+	}
+    }
+
+    /**
+     * Writes everything that is buffered to the channel.
+     */
+    public void flush() throws IOException {
+	buffer.flip();
+	while (buffer.hasRemaining()) {
+	    channel.write(buffer);
+	}
+	buffer.clear();
+    }
+
+    @Override public void close() throws IOException {
+	try {
+	    flush();
+	} finally {
+	    channel.close();
+	}
+    }
+
+    private void ensureRemaining(final int bytes) throws IOException {
+	if (buffer.remaining() < bytes) flush();
+    }
+}
@@ -0,0 +1,14 @@
+package src.tools.time;
+
+/**
+ * How the game loop paces its frames
+ */
+public enum FrameRateMode
+{
+    /** Frames are started at a fixed target rate */
+    CAPPED,
+    /** Frames are started as fast as possible */
+    UNCAPPED,
+    /** Frames are started at the display's refresh rate, and the graphics pipeline is flushed after each frame */
+    VSYNC
+}
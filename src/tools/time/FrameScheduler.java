@@ -0,0 +1,132 @@
+package src.tools.time;
+
+import src.tools.metrics.Histogram;
+
+import java.awt.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Paces the game loop. Sleeping until the next frame oversleeps by up to a millisecond on some platforms, so the thread is parked
+ * until it is close to the deadline and then spin-yields the rest of the way. The length of that spin tail adapts to how much
+ * parking has been overshooting, so it stays short, and the CPU idle, where parking is accurate.
+ *
+ * Frames are scheduled on a fixed grid of deadlines rather than relative to when the previous frame finished, so that a long
+ * frame doesn't shift all later frames. If the loop falls more than a frame behind the grid is restarted instead of catching up.
+ */
+public class FrameScheduler
+{
+    private static final long MIN_SPIN_NANOS = 50_000;
+    private static final long MAX_SPIN_NANOS = 2_000_000;
+    /** How many times the average oversleep the spin tail is */
+    private static final int SPIN_MARGIN = 2;
+    /** Weight of the latest oversleep in the running average, as a power of two */
+    private static final int OVERSLEEP_SMOOTHING_SHIFT = 3;
+    private static final double DEFAULT_REFRESH_RATE = 60;
+
+    private final Histogram jitter;
+    private FrameRateMode mode = FrameRateMode.CAPPED;
+    private long frameNanos;
+    private long nextDeadline = 0;
+    private long averageOversleep = MIN_SPIN_NANOS;
+    private volatile Thread idleThread = null;
+
+    /**
+     * @param targetFps frame rate of the CAPPED mode
+     * @param jitter records how far from its deadline each frame starts, in nanoseconds
+     */
+    public FrameScheduler(double targetFps, Histogram jitter) {
+	this.jitter = jitter;
+	setTargetFps(targetFps);
+    }
+
+    /**
+     * Paces the frames at a fixed rate
+     */
+    public void setTargetFps(double targetFps) {
+	if (targetFps <= 0) {
+	    throw new IllegalArgumentException("targetFps must be positive");
+	}
+	mode = FrameRateMode.CAPPED;
+	frameNanos = (long) (DeltaTime.NANO_SECONDS_IN_SECOND / targetFps);
+	nextDeadline = 0;
+    }
+
+    /**
+     * Paces the frames at the given mode. CAPPED keeps the current target rate, VSYNC uses the refresh rate of the default screen.
+     */
+    public void setMode(FrameRateMode mode) {
+	if (mode == FrameRateMode.VSYNC) {
+	    frameNanos = (long) (DeltaTime.NANO_SECONDS_IN_SECOND / getRefreshRate());
+	}
+	this.mode = mode;
+	nextDeadline = 0;
+    }
+
+    public FrameRateMode getMode() {
+	return mode;
+    }
+
+    /**
+     * Waits until the next frame should start. Call once per frame, after the frame has been updated and its repaint requested.
+     */
+    public void waitForNextFrame() {
+	if (mode == FrameRateMode.VSYNC) Toolkit.getDefaultToolkit().sync();
+	if (mode == FrameRateMode.UNCAPPED) {
+	    Thread.yield();
+	    return;
+	}
+
+	long now = System.nanoTime();
+	if (nextDeadline == 0 || now - nextDeadline > frameNanos) {
+	    // First frame, or more than a frame behind: restart the deadline grid from now, so the next frame starts one frame from now
+	    nextDeadline = now;
+	}
+	nextDeadline += frameNanos;
+
+	final long spinNanos = Math.min(MAX_SPIN_NANOS, Math.max(MIN_SPIN_NANOS, averageOversleep * SPIN_MARGIN));
+	long remaining = nextDeadline - now;
+	while (remaining > spinNanos) {
+	    final long parkNanos = remaining - spinNanos;
+	    LockSupport.parkNanos(parkNanos);
+	    final long parkEnd = System.nanoTime();
+	    // Clamped so that a rare long stall, which spinning couldn't have hidden anyway, doesn't lengthen the tail for long
+	    final long oversleep = Math.min(MAX_SPIN_NANOS, Math.max(0, parkEnd - now - parkNanos));
+	    averageOversleep += (oversleep - averageOversleep) >> OVERSLEEP_SMOOTHING_SHIFT;
+	    now = parkEnd;
+	    remaining = nextDeadline - now;
+	}
+	while (System.nanoTime() < nextDeadline) {
+	    Thread.yield();
+	}
+	jitter.record(System.nanoTime() - nextDeadline);
+    }
+
+    /**
+     * Waits longer than a frame, for when nothing is happening. Returns early if wake is called. Frames after an idle wait start a
+     * new deadline grid.
+     * @param maxNanos longest time to wait
+     * @param hasWork checked after the waiting thread can be woken and before it waits, so that a wake can't be missed
+     */
+    public void waitIdle(long maxNanos, BooleanSupplier hasWork) {
+	idleThread = Thread.currentThread();
+	if (!hasWork.getAsBoolean()) LockSupport.parkNanos(this, maxNanos);
+	idleThread = null;
+	nextDeadline = 0;
+    }
+
+    /**
+     * Ends an ongoing idle wait, may be called from any thread
+     */
+    public void wake() {
+	final Thread thread = idleThread;
+	if (thread != null) LockSupport.unpark(thread);
+    }
+
+    private static double getRefreshRate() {
+	if (GraphicsEnvironment.isHeadless()) return DEFAULT_REFRESH_RATE;
+	final int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+		.getDisplayMode().getRefreshRate();
+	return refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : refreshRate;
+    }
+}
@@ -0,0 +1,150 @@
+package src.tools.time;
+
+import java.security.InvalidParameterException;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for values that expire after a given time. Time is divided into ticks, and each timeout is linked into the slot
+ * of the tick it expires on, so scheduling and cancelling are constant time and advancing only looks at the slots of the ticks that
+ * passed. A timeout further away than one turn of the wheel stays in its slot until its turn comes. Timeouts expire on the first tick
+ * at or after their deadline, i.e up to one tick late.
+ *
+ * @param <T> Type of the values that expire.
+ */
+public class TimingWheel<T>
+{
+    private final long tickNanos;
+    private final Timeout<T>[] slots;
+    private final int mask;
+    private long elapsedNanos = 0;
+    private long currentTick = 0;
+    private int size = 0;
+
+    /**
+     * @param tickNanos  Length of a tick in nano seconds.
+     * @param slotCount  Number of slots, rounded up to a power of two. Timeouts within slotCount ticks are found without looking at any
+     *                   later ones.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(final long tickNanos, final int slotCount) throws InvalidParameterException {
+	if (tickNanos <= 0 || slotCount <= 0) {
+	    throw new InvalidParameterException("tick length and slot count must be positive");
+	}
+	this.tickNanos = tickNanos;
+	final int slotsLength = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+	slots = (Timeout<T>[]) new Timeout<?>[slotsLength];
+	mask = slotsLength - 1;
+    }
+
+    /**
+     * Schedules a value to expire after a given time.
+     *
+     * @param value   Value that expires.
+     * @param seconds Seconds until it expires.
+     *
+     * @return Handle which the timeout can be cancelled with.
+     */
+    public Timeout<T> schedule(final T value, final double seconds) throws InvalidParameterException {
+	if (seconds < 0) {
+	    throw new InvalidParameterException("seconds is less than 0");
+	}
+	final long deadlineNanos = elapsedNanos + (long) (seconds * DeltaTime.NANO_SECONDS_IN_SECOND);
+	final long deadlineTick = Math.max(currentTick + 1, (deadlineNanos + tickNanos - 1) / tickNanos);
+
+	final Timeout<T> timeout = new Timeout<>(value, deadlineTick);
+	final int slot = (int) (deadlineTick & mask);
+	timeout.next = slots[slot];
+	if (timeout.next != null) timeout.next.previous = timeout;
+	slots[slot] = timeout;
+	timeout.scheduled = true;
+	size++;
+	return timeout;
+    }
+
+    /**
+     * Cancels a timeout so that its value never expires.
+     *
+     * @return false if the timeout had already expired or been cancelled.
+     */
+    public boolean cancel(final Timeout<T> timeout) {
+	if (!timeout.scheduled) return false;
+	unlink(timeout);
+	return true;
+    }
+
+    /**
+     * Advances the time of the wheel, and hands every value whose timeout expired to onExpired.
+     *
+     * @param deltaTime Elapsed time.
+     * @param onExpired Called once for each expired value.
+     */
+    public void advance(final DeltaTime deltaTime, final Consumer<T> onExpired) {
+	elapsedNanos += deltaTime.getNanoSeconds();
+	final long targetTick = elapsedNanos / tickNanos;
+	if (targetTick <= currentTick) return;
+
+	// After a pause longer than a turn of the wheel, every slot is visited once
+	final long ticks = Math.min(targetTick - currentTick, slots.length);
+	for (long tick = currentTick + 1; tick <= currentTick + ticks && size > 0; tick++) {
+	    Timeout<T> timeout = slots[(int) (tick & mask)];
+	    while (timeout != null) {
+		final Timeout<T> next = timeout.next;
+		if (timeout.deadlineTick <= targetTick) {
+		    unlink(timeout);
+		    onExpired.accept(timeout.value);
+		}
+		timeout = next;
+	    }
+	}
+	currentTick = targetTick;
+    }
+
+    private void unlink(final Timeout<T> timeout) {
+	if (timeout.previous != null) timeout.previous.next = timeout.next;
+	else slots[(int) (timeout.deadlineTick & mask)] = timeout.next;
+	if (timeout.next != null) timeout.next.previous = timeout.previous;
+	timeout.previous = null;
+	timeout.next = null;
+	timeout.scheduled = false;
+	size--;
+    }
+
+    /**
+     * Returns the number of timeouts that haven't expired or been cancelled.
+     *
+     * @return Number of scheduled timeouts.
+     */
+    public int size() {
+	return size;
+    }
+
+    /**
+     * Handle to a scheduled value, used for cancelling it.
+     *
+     * @param <T> Type of the value.
+     */
+    public static final class Timeout<T>
+    {
+	private final T value;
+	private final long deadlineTick;
+	private Timeout<T> previous = null;
+	private Timeout<T> next = null;
+	private boolean scheduled = false;
+
+	private Timeout(final T value, final long deadlineTick) {
+	    this.value = value;
+	    this.deadlineTick = deadlineTick;
+	}
+
+	public T getValue() {
+	    return value;
+	}
+
+	/**
+	 * @return true until the timeout expires or is cancelled
+	 */
+	public boolean isScheduled() {
+	    return scheduled;
+	}
+    }
+}